@@ -12,6 +12,68 @@ JAR_NAME="${PROJECT_NAME}-${VERSION}.jar"
 SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
 CONF_DIR="${SCRIPT_DIR}/conf"
 HADOOP_CONF_DIR="${CONF_DIR}"
+DAEMON_DIR="${SCRIPT_DIR}/daemon"
+DAEMON_PORT="${HDFS_CLIENT_DAEMON_PORT:-19870}"
+DAEMON_TOKEN_FILE="${DAEMON_DIR}/token"
+DAEMON_PID_FILE="${DAEMON_DIR}/daemon.pid"
+DAEMON_LOG_FILE="${DAEMON_DIR}/daemon.log"
+
+# Send one command to the running daemon and print its stdout and stderr; returns the command's
+# exit code. The working directory and arguments are sent length-prefixed, so they may contain
+# spaces and newlines.
+daemon_request() {
+    local LC_ALL=C
+    if [ ! -s "${DAEMON_TOKEN_FILE}" ]; then
+        echo "HDFS client daemon is not running. Start it with: $0 --start-daemon" >&2
+        return 1
+    fi
+    if ! exec 3<>"/dev/tcp/127.0.0.1/${DAEMON_PORT}"; then
+        echo "Cannot connect to HDFS client daemon on port ${DAEMON_PORT}" >&2
+        return 1
+    fi
+    {
+        printf '%s\n%d\n%s%d\n' "$(cat "${DAEMON_TOKEN_FILE}")" "${#PWD}" "${PWD}" $#
+        local arg
+        for arg in "$@"; do
+            printf '%d\n%s' "${#arg}" "${arg}"
+        done
+    } >&3
+    local status=0
+    # Lines are tagged o/e for stdout/stderr, O/E for output without a line break, x for the exit code
+    awk '
+        /^o / { print substr($0, 3); fflush(); next }
+        /^e / { print substr($0, 3) > "/dev/stderr"; fflush("/dev/stderr"); next }
+        /^O / { printf "%s", substr($0, 3); fflush(); next }
+        /^E / { printf "%s", substr($0, 3) > "/dev/stderr"; fflush("/dev/stderr"); next }
+        /^x / { code = substr($0, 3); exit }
+        END { exit (code == "" ? 1 : code) }' <&3 || status=$?
+    exec 3<&-
+    return ${status}
+}
+
+# Commands served by a running daemon do not need the JAR or a new JVM
+case "$1" in
+    --daemon)
+        shift
+        daemon_request "$@"
+        exit $?
+        ;;
+    --daemon-stats)
+        daemon_request --stats
+        exit $?
+        ;;
+    --stop-daemon)
+        if daemon_request --shutdown; then
+            rm -f "${DAEMON_PID_FILE}"
+            exit 0
+        fi
+        if [ -f "${DAEMON_PID_FILE}" ] && kill "$(cat "${DAEMON_PID_FILE}")" 2>/dev/null; then
+            echo "HDFS client daemon stopped"
+        fi
+        rm -f "${DAEMON_PID_FILE}" "${DAEMON_TOKEN_FILE}"
+        exit 0
+        ;;
+esac
 
 # Check if Java is installed
 if ! command -v java &> /dev/null; then
@@ -30,6 +92,23 @@ if [ $# -lt 1 ]; then
     echo "  delete <path> [recursive]  - Delete file or directory"
     echo "  exists <path>              - Check if path exists"
     echo "  whoami                     - Show current authenticated user"
+    echo "  benchmarkRead <path> [threads] [partialRead] [readLimitBytes] [adaptive] - Benchmark concurrent read"
+    echo "  readCompressed <file-path> [threads] [local-output-path] - Read and decompress file"
+    echo "  writeCompressed <file-path> <content> [overwrite] - Write content compressed by extension"
+    echo "  pack <source-dir> <pack-dir>  - Pack small files into block-sized containers"
+    echo "  unpack <pack-dir> <target-dir> [overwrite] - Extract packed entries to files"
+    echo "  readPacked <pack-dir> <entry-name> - Read a single packed entry"
+    echo "  deletePacked <pack-dir> <entry-name>... - Mark packed entries as deleted"
+    echo "  compactPack <pack-dir>        - Rewrite containers without deleted entries"
+    echo "  benchmarkPack <source-dir> <pack-dir> [threads] [adaptive] - Compare per-file and packed reads"
+    echo "  replay <trace-file> [workers] [original|max|speedup] [prepare] - Replay a recorded operation trace"
+    echo "  showTrace <trace-file>        - Print the records of an operation trace"
+    echo ""
+    echo "Daemon mode (keeps a warm client in a resident JVM, port from HDFS_CLIENT_DAEMON_PORT, default 19870):"
+    echo "  $0 --start-daemon             - Start the daemon in the background"
+    echo "  $0 --daemon <hdfs-uri> [operation] [params...] - Run an operation through the daemon"
+    echo "  $0 --daemon-stats             - Show per-command latency and cold-start overhead"
+    echo "  $0 --stop-daemon              - Stop the daemon"
     exit 1
 fi
 
@@ -62,6 +141,33 @@ echo "JAR: ${JAR_PATH}"
 echo "HADOOP_CONF_DIR: ${HADOOP_CONF_DIR}"
 echo "============================="
 
+if [ "$1" = "--start-daemon" ]; then
+    if [ -s "${DAEMON_TOKEN_FILE}" ] && [ -f "${DAEMON_PID_FILE}" ] && kill -0 "$(cat "${DAEMON_PID_FILE}")" 2>/dev/null; then
+        echo "HDFS client daemon is already running (pid $(cat "${DAEMON_PID_FILE}"))"
+        exit 0
+    fi
+    mkdir -p "${DAEMON_DIR}"
+    rm -f "${DAEMON_TOKEN_FILE}"
+    echo "Starting HDFS client daemon on 127.0.0.1:${DAEMON_PORT}, log: ${DAEMON_LOG_FILE}"
+    nohup java -cp "${JAR_PATH}" com.example.hdfs.HdfsClientDaemon "${DAEMON_PORT}" "${DAEMON_TOKEN_FILE}" \
+        > "${DAEMON_LOG_FILE}" 2>&1 < /dev/null &
+    DAEMON_PID=$!
+    echo "${DAEMON_PID}" > "${DAEMON_PID_FILE}"
+    for _ in $(seq 1 300); do
+        if [ -s "${DAEMON_TOKEN_FILE}" ]; then
+            echo "HDFS client daemon started (pid ${DAEMON_PID})"
+            exit 0
+        fi
+        if ! kill -0 "${DAEMON_PID}" 2>/dev/null; then
+            break
+        fi
+        sleep 0.1
+    done
+    echo "HDFS client daemon failed to start, see ${DAEMON_LOG_FILE}"
+    rm -f "${DAEMON_PID_FILE}"
+    exit 1
+fi
+
 # Run the application
 echo "Starting HDFS Client..."
 java -cp "${JAR_PATH}" com.example.hdfs.HdfsClientApp "$@" 
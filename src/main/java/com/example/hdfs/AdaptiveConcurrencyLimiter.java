@@ -0,0 +1,291 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.RetriableException;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of in-flight operations and adjusts the limit at runtime using AIMD
+ * (additive increase, multiplicative decrease) driven by observed latency.
+ *
+ * <p>The limit starts in slow start and grows by one per completed operation, then by one per
+ * window of completions once congestion has been seen. Congestion is signalled either by an
+ * overload failure (a {@link RetriableException} or call queue overflow, local or wrapped in a
+ * {@link RemoteException}, or a socket or other timeout), which halves the limit, or by the
+ * short-term latency average rising above the long-term average by the configured tolerance,
+ * which shrinks it by 10%. A {@code StandbyException} is not overload: it signals a failover or
+ * a request to the wrong NameNode. At most one decrease is applied per round trip: only
+ * operations started after the last decrease can trigger another one.
+ *
+ * <p>The chosen limit is logged periodically together with throughput, and kept as a history
+ * that is printed when the limiter is closed.
+ */
+public class AdaptiveConcurrencyLimiter implements AutoCloseable {
+    private static final double OVERLOAD_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double SHORT_RTT_WEIGHT = 0.2;
+    private static final double LONG_RTT_WEIGHT = 0.02;
+    private static final long LOG_INTERVAL_MS = 1000;
+    // Server-side rejections arrive wrapped in a RemoteException that only carries the class name
+    private static final Set<String> REMOTE_OVERLOAD_EXCEPTIONS = new HashSet<>(Arrays.asList(
+            "org.apache.hadoop.ipc.RetriableException",
+            "org.apache.hadoop.ipc.CallQueueOverflowException"));
+
+    /**
+     * An acquired slot; must be completed with {@link #onSuccess} or {@link #onFailure}
+     */
+    public static final class Permit {
+        private final long startNanos;
+
+        private Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotAvailable = lock.newCondition();
+    private final ScheduledExecutorService logger;
+    private final LongSupplier clock;
+    private final long createdNanos;
+    private final List<String> history = new ArrayList<>();
+
+    private double limit;
+    private int inFlight;
+    private boolean slowStart = true;
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long lastDecreaseNanos;
+    private long completed;
+    private long overloads;
+    private long bytes;
+    private long lastLogNanos;
+    private long lastLogCompleted;
+    private long lastLogBytes;
+    private int lastLoggedLimit = -1;
+
+    /**
+     * Creates a limiter and starts logging its limit once per second
+     *
+     * @param name label used in log lines
+     * @param minLimit lowest allowed concurrency
+     * @param initialLimit starting concurrency
+     * @param maxLimit highest allowed concurrency
+     * @param latencyTolerance ratio of short-term to long-term latency treated as congestion, e.g. 1.5
+     */
+    public AdaptiveConcurrencyLimiter(String name, int minLimit, int initialLimit, int maxLimit, double latencyTolerance) {
+        this(name, minLimit, initialLimit, maxLimit, latencyTolerance, System::nanoTime);
+    }
+
+    /**
+     * Creates a limiter that reads time from the given clock, so latencies can be simulated in tests
+     *
+     * @param name label used in log lines
+     * @param minLimit lowest allowed concurrency
+     * @param initialLimit starting concurrency
+     * @param maxLimit highest allowed concurrency
+     * @param latencyTolerance ratio of short-term to long-term latency treated as congestion, e.g. 1.5
+     * @param clock source of monotonic time in nanoseconds
+     */
+    AdaptiveConcurrencyLimiter(String name, int minLimit, int initialLimit, int maxLimit, double latencyTolerance,
+                               LongSupplier clock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Invalid concurrency bounds: min " + minLimit + ", max " + maxLimit);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.clock = clock;
+        this.createdNanos = clock.getAsLong();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastLogNanos = createdNanos;
+        this.lastDecreaseNanos = createdNanos - 1;
+        this.logger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-limiter-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.printf("[%s] Adaptive concurrency: initial %d, min %d, max %d%n", name, (int) limit, minLimit, maxLimit);
+        logger.scheduleAtFixedRate(this::logProgress, LOG_INTERVAL_MS, LOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the highest concurrency this limiter will allow, e.g. to size a thread pool
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the number of in-flight operations is below the current limit
+     *
+     * @return a permit for one operation
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Permit acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                slotAvailable.await();
+            }
+            inFlight++;
+            return new Permit(clock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a successful operation and adjusts the limit from its latency
+     *
+     * @param permit the permit returned by {@link #acquire()}
+     * @param transferredBytes bytes moved by the operation, for throughput logging
+     */
+    public void onSuccess(Permit permit, long transferredBytes) {
+        long now = clock.getAsLong();
+        long rtt = now - permit.startNanos;
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            completed++;
+            bytes += transferredBytes;
+
+            if (longRttNanos == 0) {
+                shortRttNanos = rtt;
+                longRttNanos = rtt;
+            } else {
+                shortRttNanos += SHORT_RTT_WEIGHT * (rtt - shortRttNanos);
+                longRttNanos += LONG_RTT_WEIGHT * (rtt - longRttNanos);
+            }
+
+            if (shortRttNanos > longRttNanos * latencyTolerance) {
+                decrease(permit, now, LATENCY_BACKOFF);
+            } else if (saturated) {
+                limit = Math.min(maxLimit, limit + (slowStart ? 1.0 : 1.0 / limit));
+            }
+            slotAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a failed operation. Overload failures shrink the limit; other failures only free the slot.
+     *
+     * @param permit the permit returned by {@link #acquire()}
+     * @param failure the failure, or null if it is unknown, e.g. an {@link Error} seen in a finally block
+     */
+    public void onFailure(Permit permit, Throwable failure) {
+        long now = clock.getAsLong();
+        lock.lock();
+        try {
+            inFlight--;
+            if (isOverload(failure)) {
+                overloads++;
+                decrease(permit, now, OVERLOAD_BACKOFF);
+            }
+            slotAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(Permit permit, long now, double factor) {
+        // Operations issued before the last decrease reflect the old limit, so ignore their signal
+        if (permit.startNanos - lastDecreaseNanos <= 0) {
+            return;
+        }
+        slowStart = false;
+        limit = Math.max(minLimit, limit * factor);
+        lastDecreaseNanos = now;
+    }
+
+    /**
+     * Checks whether a failure indicates an overloaded NameNode or DataNode
+     *
+     * @param failure the failure to classify
+     * @return true for retriable or busy server rejections and timeouts anywhere in the cause chain
+     */
+    static boolean isOverload(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof RetriableException || t instanceof SocketTimeoutException || t instanceof TimeoutException) {
+                return true;
+            }
+            if (t instanceof RemoteException
+                    && REMOTE_OVERLOAD_EXCEPTIONS.contains(((RemoteException) t).getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void logProgress() {
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            double intervalSeconds = (now - lastLogNanos) / 1e9;
+            double opsPerSecond = intervalSeconds > 0 ? (completed - lastLogCompleted) / intervalSeconds : 0;
+            double mbPerSecond = intervalSeconds > 0 ? (bytes - lastLogBytes) / (1024.0 * 1024.0) / intervalSeconds : 0;
+            double elapsedSeconds = (now - createdNanos) / 1e9;
+            System.out.printf("[%s] t=%.1fs limit=%d inFlight=%d ops/s=%.1f MB/s=%.2f latency short=%.2f ms long=%.2f ms overloads=%d%n",
+                    name, elapsedSeconds, (int) limit, inFlight, opsPerSecond, mbPerSecond,
+                    shortRttNanos / 1e6, longRttNanos / 1e6, overloads);
+            if ((int) limit != lastLoggedLimit) {
+                history.add(String.format("%.1fs:%d", elapsedSeconds, (int) limit));
+                lastLoggedLimit = (int) limit;
+            }
+            lastLogNanos = now;
+            lastLogCompleted = completed;
+            lastLogBytes = bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops periodic logging and prints the concurrency chosen over time
+     */
+    @Override
+    public void close() {
+        logger.shutdownNow();
+        logProgress();
+        lock.lock();
+        try {
+            System.out.printf("[%s] Concurrency over time: %s%n", name, String.join(" ", history));
+            System.out.printf("[%s] Completed %d operations, %d overload failures, final limit %d%n",
+                    name, completed, overloads, (int) limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -4,12 +4,21 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.hdfs.DFSInputStream;
 import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
 import org.apache.hadoop.security.UserGroupInformation;
 
 import java.io.*;
 import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -38,21 +47,94 @@ public class HdfsClient implements AutoCloseable {
     private static final String SOCKET_TIMEOUT_READ = "dfs.client.socket.timeout";
     private static final int DEFAULT_TIMEOUT_MS = 10000; // Default 10 seconds
     
+    // Codec-aware read configuration
+    private static final String DECODE_SPLIT_SIZE = "hdfs.client.decode.split.size"; // 0 = derive from block size
+    private static final int PREFETCH_CHUNK_SIZE = 1024 * 1024;
+    private static final int PREFETCH_QUEUE_DEPTH = 8;
+    
+    // Operation trace configuration
+    private static final String TRACE_FILE = "hdfs.client.trace.file"; // local file, tracing disabled if unset
+    
+    // Adaptive concurrency configuration for bulk operations
+    private static final String CONCURRENCY_ADAPTIVE = "hdfs.client.concurrency.adaptive";
+    private static final String CONCURRENCY_MIN = "hdfs.client.concurrency.min";
+    private static final String CONCURRENCY_MAX = "hdfs.client.concurrency.max";
+    private static final String CONCURRENCY_LATENCY_TOLERANCE = "hdfs.client.concurrency.latency.tolerance";
+    private static final String CONCURRENCY_INITIAL = "hdfs.client.concurrency.initial"; // for operations without a thread count
+    private static final int DEFAULT_CONCURRENCY_MIN = 1;
+    private static final int DEFAULT_CONCURRENCY_INITIAL = 8;
+    private static final int DEFAULT_CONCURRENCY_MAX = 128;
+    private static final float DEFAULT_CONCURRENCY_LATENCY_TOLERANCE = 1.5f;
+    
+    private static final int READ_FILE_MAX_BYTES = 4096;
+    
+    private final long traceOriginNanos = System.nanoTime();
+    private volatile File traceFile;
+    private OperationTrace.Writer traceWriter;
+    
     /**
-     * Constructs a new HDFS client with the specified HDFS URI
+     * Constructs a new HDFS client with the specified HDFS URI, configured from HADOOP_CONF_DIR
      * 
      * @param hdfsUri the HDFS URI (e.g., "hdfs://localhost:9000")
      * @throws IOException if an error occurs during initialization
      */
     public HdfsClient(String hdfsUri) throws IOException {
+        this(hdfsUri, loadConfiguration());
+    }
+    
+    /**
+     * Constructs a new HDFS client with the specified HDFS URI and a configuration prepared by the
+     * caller; HADOOP_CONF_DIR and client.conf are not read
+     * 
+     * @param hdfsUri the HDFS URI (e.g., "hdfs://localhost:9000")
+     * @param configuration the Hadoop configuration, including any hdfs.client.* settings
+     * @throws IOException if an error occurs during initialization
+     */
+    public HdfsClient(String hdfsUri, Configuration configuration) throws IOException {
         this.hdfsUri = hdfsUri;
+        // The settings below must not leak into the caller's configuration
+        configuration = new Configuration(configuration);
+        boolean kerberosConfigured = "kerberos".equals(configuration.get(HADOOP_SECURITY_AUTHENTICATION));
+        
+        // Set default IO timeout
+        configuration.setInt(SOCKET_TIMEOUT, DEFAULT_TIMEOUT_MS);
+        configuration.setInt(SOCKET_TIMEOUT_READ, DEFAULT_TIMEOUT_MS);
+        System.out.println("Setting default socket timeout to " + DEFAULT_TIMEOUT_MS + " ms");
+        
+        // Print all configuration properties
+        System.out.println("Configuration properties:");
+        for (Map.Entry<String, String> entry : configuration) {
+            System.out.println(entry.getKey() + " = " + entry.getValue());
+        }
+        
+        // Set HDFS URI (if the URI specified from command line is different from the one in config files, override it)
+        configuration.set("fs.defaultFS", hdfsUri);
+        System.out.println("Setting fs.defaultFS to: " + hdfsUri);
+        // Get file system
+        this.fileSystem = FileSystem.get(configuration);
+        System.out.println("HDFS client initialized with URI: " + hdfsUri + 
+                (kerberosConfigured ? " (with Kerberos authentication)" : ""));
         
+        // Record operations to a local trace file if configured. The segment is created on the
+        // first traced operation, so commands that only read traces never create one.
+        String traceFile = configuration.get(TRACE_FILE);
+        if (traceFile != null && !traceFile.isEmpty()) {
+            this.traceFile = new File(traceFile);
+        }
+    }
+    
+    /**
+     * Loads the configuration from HADOOP_CONF_DIR and logs in to Kerberos if client.conf asks for it
+     * 
+     * @return the configuration
+     * @throws IOException if Kerberos login fails
+     */
+    private static Configuration loadConfiguration() throws IOException {
         // Create configuration object and load configuration files
         Configuration configuration = new Configuration();
         
         // Set configuration file path
         String confDir = System.getenv("HADOOP_CONF_DIR");
-        boolean kerberosConfigured = false;
         
         if (confDir != null && !confDir.isEmpty()) {
             System.out.println("Loading configuration from: " + confDir);
@@ -65,29 +147,12 @@ public class HdfsClient implements AutoCloseable {
             Properties clientProperties = loadClientConf(configuration, confDir);
             
             // Check if Kerberos authentication is configured
-            kerberosConfigured = setupKerberosAuthentication(configuration, clientProperties);
+            setupKerberosAuthentication(configuration, clientProperties);
         } else {
             System.out.println("HADOOP_CONF_DIR not set, using default configuration.");
         }
         
-        // Set default IO timeout
-        configuration.setInt(SOCKET_TIMEOUT, DEFAULT_TIMEOUT_MS);
-        configuration.setInt(SOCKET_TIMEOUT_READ, DEFAULT_TIMEOUT_MS);
-        System.out.println("Setting default socket timeout to " + DEFAULT_TIMEOUT_MS + " ms");
-        
-        // Print all configuration properties
-        System.out.println("Configuration properties:");
-        for (Map.Entry<String, String> entry : configuration) {
-            System.out.println(entry.getKey() + " = " + entry.getValue());
-        }
-        
-        // Set HDFS URI (if the URI specified from command line is different from the one in config files, override it)
-        configuration.set("fs.defaultFS", hdfsUri);
-        System.out.println("Setting fs.defaultFS to: " + hdfsUri);
-        // Get file system
-        this.fileSystem = FileSystem.get(configuration);
-        System.out.println("HDFS client initialized with URI: " + hdfsUri + 
-                (kerberosConfigured ? " (with Kerberos authentication)" : ""));
+        return configuration;
     }
     
     /**
@@ -98,7 +163,7 @@ public class HdfsClient implements AutoCloseable {
      * @return whether Kerberos authentication was configured
      * @throws IOException if an error occurs during authentication
      */
-    private boolean setupKerberosAuthentication(Configuration configuration, Properties clientProperties) throws IOException {
+    private static boolean setupKerberosAuthentication(Configuration configuration, Properties clientProperties) throws IOException {
         if (clientProperties == null) {
             return false;
         }
@@ -160,7 +225,7 @@ public class HdfsClient implements AutoCloseable {
      * @param confDir configuration directory
      * @return Properties object containing properties from client.conf, or null if file doesn't exist
      */
-    private Properties loadClientConf(Configuration configuration, String confDir) {
+    private static Properties loadClientConf(Configuration configuration, String confDir) {
         File clientConfFile = new File(confDir, "client.conf");
         if (clientConfFile.exists() && clientConfFile.isFile()) {
             try (BufferedReader reader = new BufferedReader(new FileReader(clientConfFile))) {
@@ -201,6 +266,10 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public List<FileStatus> listFiles(String hdfsPath) throws IOException {
+        return traced(OperationTrace.Op.LIST, hdfsPath, 0, -1, false, () -> listFilesUntraced(hdfsPath), statuses -> 0);
+    }
+    
+    private List<FileStatus> listFilesUntraced(String hdfsPath) throws IOException {
         System.out.println("Starting listFiles operation for path: " + hdfsPath);
         long startTime = System.currentTimeMillis();
         
@@ -234,6 +303,13 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public String readFile(String hdfsFilePath) throws IOException {
+        // Trace the bytes read from the file, not the length of the decoded string
+        byte[] content = traced(OperationTrace.Op.READ, hdfsFilePath, 0, READ_FILE_MAX_BYTES, false,
+                () -> readFileUntraced(hdfsFilePath), bytes -> bytes.length);
+        return new String(content);
+    }
+    
+    private byte[] readFileUntraced(String hdfsFilePath) throws IOException {
         System.out.println("Starting readFile operation for path: " + hdfsFilePath);
         long startTime = System.currentTimeMillis();
         
@@ -276,9 +352,9 @@ public class HdfsClient implements AutoCloseable {
         System.out.println("Applied all timeout settings to " + DEFAULT_TIMEOUT_MS + " ms");
         
         // Set maximum bytes to read
-        final int MAX_BYTES_TO_READ = 4096;
+        final int MAX_BYTES_TO_READ = READ_FILE_MAX_BYTES;
         
-        String content;
+        byte[] content;
         try {
             System.out.println("Step 1: Opening HDFS file...");
             long openStartTime = System.currentTimeMillis();
@@ -314,7 +390,7 @@ public class HdfsClient implements AutoCloseable {
                     System.out.println("Read " + bytesRead + " bytes from file");
                 }
                 
-                content = outputStream.toString();
+                content = outputStream.toByteArray();
                 // Don't print the read content
                 System.out.println("Step 2: Content read successfully in " + (System.currentTimeMillis() - readStartTime) + 
                                   " ms, total bytes: " + totalBytesRead);
@@ -348,6 +424,13 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public void writeFile(String hdfsFilePath, String content, boolean overwrite) throws IOException {
+        traced(OperationTrace.Op.WRITE, hdfsFilePath, 0, -1, overwrite, () -> {
+            writeFileUntraced(hdfsFilePath, content, overwrite);
+            return content;
+        }, written -> written.getBytes().length);
+    }
+    
+    private void writeFileUntraced(String hdfsFilePath, String content, boolean overwrite) throws IOException {
         System.out.println("Starting writeFile operation for path: " + hdfsFilePath);
         long startTime = System.currentTimeMillis();
         
@@ -370,7 +453,199 @@ public class HdfsClient implements AutoCloseable {
         System.out.println("writeFile operation completed in " + (endTime - startTime) + " ms");
     }
     
+    /**
+     * Reads a file from HDFS and decompresses it with the codec matching its extension
+     * (gzip, bzip2, zstd, snappy, ...). Network reads run on a prefetch thread so they
+     * overlap with decompression. With more than one thread, bzip2 files and SequenceFile
+     * containers are decoded in parallel across splits. Files without a known codec are
+     * copied as-is.
+     * 
+     * @param hdfsFilePath the path to the file in HDFS
+     * @param out destination for the decompressed bytes, or null to only measure throughput
+     * @param threadCount number of threads used for splittable files
+     * @return number of decompressed bytes
+     * @throws IOException if an error occurs during the operation
+     */
+    public long readCompressedFile(String hdfsFilePath, OutputStream out, int threadCount) throws IOException {
+        return traced(OperationTrace.Op.READ, hdfsFilePath, 0, -1, false,
+                () -> readCompressedFileUntraced(hdfsFilePath, out, threadCount), decompressed -> decompressed);
+    }
+    
+    private long readCompressedFileUntraced(String hdfsFilePath, OutputStream out, int threadCount) throws IOException {
+        System.out.println("Starting readCompressedFile operation for path: " + hdfsFilePath);
+        long startTime = System.currentTimeMillis();
+        
+        Path path = new Path(hdfsFilePath);
+        
+        if (!fileSystem.exists(path)) {
+            System.out.println("readCompressedFile operation failed: File not found");
+            throw new FileNotFoundException("File not found: " + hdfsFilePath);
+        }
+        
+        FileStatus status = fileSystem.getFileStatus(path);
+        if (status.isDirectory()) {
+            System.out.println("readCompressedFile operation failed: Cannot read a directory");
+            throw new IOException("Cannot read a directory: " + hdfsFilePath);
+        }
+        
+        Configuration conf = fileSystem.getConf();
+        CompressionCodec codec = new CompressionCodecFactory(conf).getCodec(path);
+        ParallelSplitDecoder splitDecoder = new ParallelSplitDecoder(fileSystem, conf.getLong(DECODE_SPLIT_SIZE, 0));
+        
+        long decompressedBytes;
+        if (codec instanceof SplittableCompressionCodec && threadCount > 1) {
+            System.out.println("Using codec " + codec.getClass().getSimpleName() + " with parallel split decoding");
+            decompressedBytes = splitDecoder.decodeSplittable(path, (SplittableCompressionCodec) codec, threadCount, out);
+        } else if (codec == null && splitDecoder.isSequenceFile(path)) {
+            System.out.println("Detected SequenceFile container, decoding records");
+            decompressedBytes = splitDecoder.decodeSequenceFile(path, Math.max(1, threadCount), out);
+        } else {
+            System.out.println(codec != null
+                    ? "Using codec " + codec.getClass().getSimpleName() + " with pipelined decompression"
+                    : "No codec found for " + hdfsFilePath + ", reading uncompressed");
+            try (PrefetchInputStream prefetch = new PrefetchInputStream(fileSystem.open(path),
+                    PREFETCH_CHUNK_SIZE, PREFETCH_QUEUE_DEPTH, "prefetch-" + path.getName())) {
+                if (codec == null) {
+                    decompressedBytes = copyAndCount(prefetch, out);
+                } else {
+                    Decompressor decompressor = CodecPool.getDecompressor(codec);
+                    try (InputStream in = codec.createInputStream(prefetch, decompressor)) {
+                        decompressedBytes = copyAndCount(in, out);
+                    } finally {
+                        CodecPool.returnDecompressor(decompressor);
+                    }
+                }
+            }
+        }
+        
+        long elapsed = System.currentTimeMillis() - startTime;
+        long compressedBytes = status.getLen();
+        System.out.printf("Compressed:   %d bytes, %.2f MB/s%n", compressedBytes, throughputMBps(compressedBytes, elapsed));
+        System.out.printf("Decompressed: %d bytes, %.2f MB/s%n", decompressedBytes, throughputMBps(decompressedBytes, elapsed));
+        System.out.println("readCompressedFile operation completed in " + elapsed + " ms");
+        
+        return decompressedBytes;
+    }
+    
+    /**
+     * Writes content to a file in HDFS, compressed with the codec matching the file extension
+     * 
+     * @param hdfsFilePath the path to the file in HDFS
+     * @param content the content to write
+     * @param overwrite whether to overwrite an existing file
+     * @return number of bytes written to HDFS after compression
+     * @throws IOException if an error occurs during the operation
+     */
+    public long writeCompressedFile(String hdfsFilePath, String content, boolean overwrite) throws IOException {
+        return writeCompressedFile(hdfsFilePath, new ByteArrayInputStream(content.getBytes()), overwrite);
+    }
+    
+    /**
+     * Writes a stream to a file in HDFS, compressed with the codec matching the file extension.
+     * Files without a known codec extension are written uncompressed.
+     * 
+     * @param hdfsFilePath the path to the file in HDFS
+     * @param source the uncompressed data to write
+     * @param overwrite whether to overwrite an existing file
+     * @return number of bytes written to HDFS after compression
+     * @throws IOException if an error occurs during the operation
+     */
+    public long writeCompressedFile(String hdfsFilePath, InputStream source, boolean overwrite) throws IOException {
+        return traced(OperationTrace.Op.WRITE, hdfsFilePath, 0, -1, overwrite,
+                () -> writeCompressedFileUntraced(hdfsFilePath, source, overwrite), compressed -> compressed);
+    }
+    
+    private long writeCompressedFileUntraced(String hdfsFilePath, InputStream source, boolean overwrite) throws IOException {
+        System.out.println("Starting writeCompressedFile operation for path: " + hdfsFilePath);
+        long startTime = System.currentTimeMillis();
+        
+        Path path = new Path(hdfsFilePath);
+        
+        if (fileSystem.exists(path) && !overwrite) {
+            System.out.println("writeCompressedFile operation failed: File exists and overwrite not allowed");
+            throw new IOException("File already exists and overwrite is not allowed: " + hdfsFilePath);
+        }
+        
+        CompressionCodec codec = new CompressionCodecFactory(fileSystem.getConf()).getCodec(path);
+        System.out.println(codec != null
+                ? "Using codec " + codec.getClass().getSimpleName()
+                : "No codec found for " + hdfsFilePath + ", writing uncompressed");
+        
+        long uncompressedBytes;
+        long compressedBytes;
+        try (FSDataOutputStream outputStream = fileSystem.create(path, overwrite)) {
+            if (codec == null) {
+                uncompressedBytes = copyAndCount(source, outputStream);
+            } else {
+                Compressor compressor = CodecPool.getCompressor(codec);
+                try {
+                    CompressionOutputStream compressed = codec.createOutputStream(outputStream, compressor);
+                    uncompressedBytes = copyAndCount(source, compressed);
+                    compressed.finish();
+                } finally {
+                    CodecPool.returnCompressor(compressor);
+                }
+            }
+            compressedBytes = outputStream.getPos();
+        }
+        
+        long elapsed = System.currentTimeMillis() - startTime;
+        System.out.printf("Uncompressed: %d bytes, %.2f MB/s%n", uncompressedBytes, throughputMBps(uncompressedBytes, elapsed));
+        System.out.printf("Compressed:   %d bytes, %.2f MB/s%n", compressedBytes, throughputMBps(compressedBytes, elapsed));
+        System.out.println("writeCompressedFile operation completed in " + elapsed + " ms");
+        
+        return compressedBytes;
+    }
+    
+    private static long copyAndCount(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            if (out != null) {
+                out.write(buffer, 0, bytesRead);
+            }
+            total += bytesRead;
+        }
+        return total;
+    }
+    
+    private static double throughputMBps(long bytes, long elapsedMs) {
+        return elapsedMs > 0 ? (bytes / (1024.0 * 1024.0)) / (elapsedMs / 1000.0) : 0;
+    }
+    
     public void benchmarkConcurrentRead(String path, int threadCount,boolean partialRead, long readLimitBytes) throws InterruptedException, IOException {
+        benchmarkConcurrentRead(path, threadCount, partialRead, readLimitBytes, isAdaptiveConcurrencyEnabled());
+    }
+    
+    /**
+     * Benchmarks concurrent reads of a file or of every file under a directory. With a fixed
+     * thread count, each of threadCount threads reads all files. In adaptive mode the same
+     * threadCount passes over all files are issued through an adaptive concurrency limiter
+     * that starts at threadCount in-flight reads and grows or shrinks from observed latency.
+     * 
+     * @param path the file or directory to read
+     * @param threadCount number of threads, or of passes over the files in adaptive mode
+     * @param partialRead whether to stop reading each file after readLimitBytes
+     * @param readLimitBytes bytes to read per file when partialRead is set
+     * @param adaptive whether to adapt the number of in-flight reads at runtime
+     * @throws InterruptedException if interrupted while waiting for readers
+     * @throws IOException if the files cannot be listed
+     */
+    public void benchmarkConcurrentRead(String path, int threadCount, boolean partialRead, long readLimitBytes,
+                                        boolean adaptive) throws InterruptedException, IOException {
+        if (adaptive) {
+            List<Path> allFiles = listAllFiles(new Path(path));
+            allFiles.forEach(file -> System.out.println("Found file: " + file));
+            List<Path> reads = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                reads.addAll(allFiles);
+            }
+            runReadPhase("benchmarkRead", reads, threadCount, true,
+                    file -> readForBenchmark(file, partialRead, readLimitBytes));
+            return;
+        }
+        
         ExecutorService executor = Executors.newFixedThreadPool(threadCount);
         CountDownLatch latch = new CountDownLatch(threadCount);
         AtomicLong totalBytes = new AtomicLong();
@@ -394,16 +669,9 @@ public class HdfsClient implements AutoCloseable {
 
                     for (Path file : allFiles) {
                         long fileStart = System.currentTimeMillis();
-                        try (FSDataInputStream in = fileSystem.open(file);
-                             BufferedInputStream bis = new BufferedInputStream(in)) {
-
-                            byte[] buffer = new byte[8192];
-                            int bytesRead, readSoFar = 0;
-                            while ((bytesRead = bis.read(buffer)) != -1) {
-                                threadBytes += bytesRead;
-                                readSoFar += bytesRead;
-                                if (partialRead && readSoFar >= readLimitBytes) break;
-                            }
+                        try {
+                            long readSoFar = readForBenchmark(file, partialRead, readLimitBytes);
+                            threadBytes += readSoFar;
 
                             long fileCost = System.currentTimeMillis() - fileStart;
                             System.out.printf("Thread %d read file %s: %d bytes in %d ms%n",
@@ -441,6 +709,36 @@ public class HdfsClient implements AutoCloseable {
         System.out.printf("TOTAL: %d files, %d bytes read, %d failed%n",
                 totalFiles.get(), totalBytes.get(), failedFiles.get());
     }
+    
+    private long readForBenchmark(Path file, boolean partialRead, long readLimitBytes) throws IOException {
+        return traced(OperationTrace.Op.READ, file.toString(), 0, partialRead ? readLimitBytes : -1, false, () -> {
+            try (FSDataInputStream in = fileSystem.open(file);
+                 BufferedInputStream bis = new BufferedInputStream(in)) {
+                
+                byte[] buffer = new byte[8192];
+                int bytesRead;
+                long readSoFar = 0;
+                while ((bytesRead = bis.read(buffer)) != -1) {
+                    readSoFar += bytesRead;
+                    if (partialRead && readSoFar >= readLimitBytes) break;
+                }
+                return readSoFar;
+            }
+        }, readSoFar -> readSoFar);
+    }
+    
+    private boolean isAdaptiveConcurrencyEnabled() {
+        return fileSystem.getConf().getBoolean(CONCURRENCY_ADAPTIVE, false);
+    }
+    
+    private AdaptiveConcurrencyLimiter newConcurrencyLimiter(String name, int initialLimit) {
+        Configuration conf = fileSystem.getConf();
+        return new AdaptiveConcurrencyLimiter(name,
+                conf.getInt(CONCURRENCY_MIN, DEFAULT_CONCURRENCY_MIN),
+                initialLimit,
+                conf.getInt(CONCURRENCY_MAX, DEFAULT_CONCURRENCY_MAX),
+                conf.getFloat(CONCURRENCY_LATENCY_TOLERANCE, DEFAULT_CONCURRENCY_LATENCY_TOLERANCE));
+    }
     public  List<Path> listAllFiles(Path root) throws IOException {
         List<Path> result = new ArrayList<>();
         RemoteIterator<LocatedFileStatus> iter = fileSystem.listFiles(root, true);
@@ -453,6 +751,472 @@ public class HdfsClient implements AutoCloseable {
         return result;
     }
     
+    /**
+     * Packs every file under a directory into block-sized container files with a sorted
+     * index, so that many small files cost a handful of NameNode objects. Entries are named
+     * by their path relative to the source directory. Packing into an existing pack
+     * directory appends new containers; entries with the same name replace older ones.
+     * 
+     * @param sourceDir the directory holding the small files
+     * @param packDir the pack directory to write containers to
+     * @return number of files packed
+     * @throws IOException if an error occurs during the operation
+     */
+    public int packFiles(String sourceDir, String packDir) throws IOException {
+        System.out.println("Starting packFiles operation from " + sourceDir + " to " + packDir);
+        long startTime = System.currentTimeMillis();
+        
+        Path source = fileSystem.makeQualified(new Path(sourceDir));
+        Path target = new Path(packDir);
+        List<Path> files = listAllFiles(source);
+        long targetSize = fileSystem.getDefaultBlockSize(target);
+        
+        List<Path> containers;
+        AtomicLong packedBytes = new AtomicLong();
+        SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, target, targetSize);
+        try (SmallFilePack.Writer packWriter = writer) {
+            try {
+                fetchInOrder("pack", files, this::readWholeFile, (file, payload) -> {
+                    packWriter.add(relativeName(source, file), payload);
+                    packedBytes.addAndGet(payload.length);
+                });
+            } catch (IOException | RuntimeException e) {
+                // Reading a file failed; do not publish the container it would have gone into
+                packWriter.abort();
+                throw e;
+            }
+        }
+        // Complete only after close, which publishes the last container
+        containers = writer.getWrittenContainers();
+        
+        containers.forEach(container -> System.out.println("Wrote container: " + container));
+        long endTime = System.currentTimeMillis();
+        System.out.println("Packed " + files.size() + " files (" + packedBytes.get() + " bytes) into "
+                + containers.size() + " containers of up to " + targetSize + " bytes");
+        System.out.println("packFiles operation completed in " + (endTime - startTime) + " ms");
+        return files.size();
+    }
+    
+    /**
+     * Extracts every live entry of a pack into separate files under a target directory
+     * 
+     * @param packDir the pack directory
+     * @param targetDir the directory to extract to
+     * @param overwrite whether to overwrite existing files
+     * @return number of entries extracted
+     * @throws IOException if an error occurs during the operation
+     */
+    public int unpackFiles(String packDir, String targetDir, boolean overwrite) throws IOException {
+        System.out.println("Starting unpackFiles operation from " + packDir + " to " + targetDir);
+        long startTime = System.currentTimeMillis();
+        
+        int count;
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, new Path(packDir))) {
+            List<SmallFilePack.Entry> entries = pack.entries();
+            boolean adaptive = isAdaptiveConcurrencyEnabled();
+            int initialConcurrency = adaptive ? fileSystem.getConf().getInt(CONCURRENCY_INITIAL, DEFAULT_CONCURRENCY_INITIAL) : 1;
+            int failures = runReadPhase("Unpack", entries, initialConcurrency, adaptive, entry -> {
+                Path target = new Path(targetDir, entry.getName());
+                byte[] payload = pack.read(entry);
+                traced(OperationTrace.Op.WRITE, target.toString(), 0, -1, overwrite, () -> {
+                    try (FSDataOutputStream outputStream = fileSystem.create(target, overwrite)) {
+                        outputStream.write(payload);
+                    }
+                    return payload;
+                }, written -> written.length);
+                return payload.length;
+            });
+            if (failures > 0) {
+                throw new IOException("Failed to extract " + failures + " of " + entries.size() + " entries from " + packDir);
+            }
+            count = entries.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting " + packDir);
+        }
+        
+        long endTime = System.currentTimeMillis();
+        System.out.println("Extracted " + count + " entries");
+        System.out.println("unpackFiles operation completed in " + (endTime - startTime) + " ms");
+        return count;
+    }
+    
+    /**
+     * Reads a single entry of a pack with one positional read after loading the pack index
+     * 
+     * @param packDir the pack directory
+     * @param entryName the entry name, relative to the packed source directory
+     * @return the entry content
+     * @throws IOException if the entry does not exist or an error occurs during the operation
+     */
+    public byte[] readPackedEntry(String packDir, String entryName) throws IOException {
+        System.out.println("Starting readPackedEntry operation for " + entryName + " in " + packDir);
+        long startTime = System.currentTimeMillis();
+        
+        byte[] content;
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, new Path(packDir))) {
+            System.out.println("Loaded pack index with " + pack.entries().size() + " entries in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+            SmallFilePack.Entry entry = pack.getEntry(entryName);
+            if (entry == null) {
+                throw new FileNotFoundException("Entry not found in pack " + packDir + ": " + entryName);
+            }
+            content = readPacked(pack, entry);
+        }
+        
+        long endTime = System.currentTimeMillis();
+        System.out.println("Read " + content.length + " bytes");
+        System.out.println("readPackedEntry operation completed in " + (endTime - startTime) + " ms");
+        return content;
+    }
+    
+    /**
+     * Marks entries of a pack as deleted. The payloads are removed by the next compaction.
+     * 
+     * @param packDir the pack directory
+     * @param entryNames the entries to delete
+     * @throws IOException if an error occurs during the operation
+     */
+    public void deletePackedEntries(String packDir, List<String> entryNames) throws IOException {
+        Path target = new Path(packDir);
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, target, fileSystem.getDefaultBlockSize(target))) {
+            for (String name : entryNames) {
+                writer.delete(name);
+                System.out.println("Marked packed entry as deleted: " + name);
+            }
+        }
+    }
+    
+    /**
+     * Rewrites the live entries of a pack into fresh containers, dropping deleted and replaced payloads
+     * 
+     * @param packDir the pack directory
+     * @return number of live entries kept
+     * @throws IOException if an error occurs during the operation
+     */
+    public int compactPack(String packDir) throws IOException {
+        System.out.println("Starting compactPack operation for " + packDir);
+        long startTime = System.currentTimeMillis();
+        
+        Path target = new Path(packDir);
+        int before = SmallFilePack.listContainers(fileSystem, target).size();
+        int kept = SmallFilePack.compact(fileSystem, target, fileSystem.getDefaultBlockSize(target),
+                (pack, entries, writer) -> fetchInOrder("compactPack", entries, pack::read,
+                        (entry, payload) -> writer.add(entry.getName(), payload)));
+        int after = SmallFilePack.listContainers(fileSystem, target).size();
+        
+        long endTime = System.currentTimeMillis();
+        System.out.println("Compacted " + before + " containers into " + after + ", keeping " + kept + " entries");
+        System.out.println("compactPack operation completed in " + (endTime - startTime) + " ms");
+        return kept;
+    }
+    
+    /**
+     * Compares reading every small file under a directory one file at a time with reading the
+     * same payloads from a pack of that directory
+     * 
+     * @param sourceDir the directory holding the small files
+     * @param packDir the pack directory created from sourceDir
+     * @param threadCount number of concurrent readers
+     * @throws IOException if an error occurs during the operation
+     * @throws InterruptedException if interrupted while waiting for readers
+     */
+    public void benchmarkPackedRead(String sourceDir, String packDir, int threadCount) throws IOException, InterruptedException {
+        benchmarkPackedRead(sourceDir, packDir, threadCount, isAdaptiveConcurrencyEnabled());
+    }
+    
+    /**
+     * Compares reading every small file under a directory one file at a time with reading the
+     * same payloads from a pack of that directory
+     * 
+     * @param sourceDir the directory holding the small files
+     * @param packDir the pack directory created from sourceDir
+     * @param threadCount number of concurrent readers, or the initial number in adaptive mode
+     * @param adaptive whether to adapt the number of in-flight reads at runtime
+     * @throws IOException if an error occurs during the operation
+     * @throws InterruptedException if interrupted while waiting for readers
+     */
+    public void benchmarkPackedRead(String sourceDir, String packDir, int threadCount, boolean adaptive)
+            throws IOException, InterruptedException {
+        List<Path> files = listAllFiles(new Path(sourceDir));
+        runReadPhase("Per-file", files, threadCount, adaptive, file -> readWholeFile(file).length);
+        
+        long indexStart = System.currentTimeMillis();
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, new Path(packDir))) {
+            System.out.println("Loaded pack index with " + pack.entries().size() + " entries in "
+                    + (System.currentTimeMillis() - indexStart) + " ms");
+            runReadPhase("Packed", pack.entries(), threadCount, adaptive, entry -> readPacked(pack, entry).length);
+        }
+    }
+    
+    private interface PayloadReader<T> {
+        long read(T item) throws IOException;
+    }
+    
+    /**
+     * Runs the reader over all items concurrently, through an adaptive concurrency limiter in adaptive mode
+     * 
+     * @return number of items that failed
+     */
+    private <T> int runReadPhase(String label, List<T> items, int threadCount, boolean adaptive,
+                                 PayloadReader<T> reader) throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = adaptive ? newConcurrencyLimiter(label, threadCount) : null;
+        ExecutorService executor = Executors.newFixedThreadPool(limiter != null ? limiter.getMaxLimit() : threadCount);
+        AtomicLong totalBytes = new AtomicLong();
+        AtomicLong totalLatencyNanos = new AtomicLong();
+        AtomicInteger failures = new AtomicInteger();
+        
+        long phaseStart = System.nanoTime();
+        try {
+            for (T item : items) {
+                // In adaptive mode, wait for the limiter before handing the read to an idle pool thread
+                AdaptiveConcurrencyLimiter.Permit permit = limiter != null ? limiter.acquire() : null;
+                executor.submit(() -> {
+                    long opStart = System.nanoTime();
+                    long bytes = 0;
+                    boolean succeeded = false;
+                    Exception failure = null;
+                    try {
+                        bytes = reader.read(item);
+                        totalBytes.addAndGet(bytes);
+                        succeeded = true;
+                    } catch (IOException | RuntimeException e) {
+                        System.err.printf("%s read of %s failed: %s%n", label, item, e.getMessage());
+                        failures.incrementAndGet();
+                        failure = e;
+                    } finally {
+                        // Also frees the slot when the read throws an Error, or the limiter would run dry
+                        if (permit != null) {
+                            if (succeeded) {
+                                limiter.onSuccess(permit, bytes);
+                            } else {
+                                limiter.onFailure(permit, failure);
+                            }
+                        }
+                    }
+                    totalLatencyNanos.addAndGet(System.nanoTime() - opStart);
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+            if (limiter != null) {
+                limiter.close();
+            }
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - phaseStart);
+        
+        int reads = items.size();
+        System.out.printf("%s: %d reads, %d bytes, %d failed, %d ms, %.1f reads/s, %.2f MB/s, avg latency %.2f ms%n",
+                label, reads, totalBytes.get(), failures.get(), elapsedMs,
+                elapsedMs > 0 ? reads * 1000.0 / elapsedMs : 0,
+                throughputMBps(totalBytes.get(), elapsedMs),
+                reads > 0 ? totalLatencyNanos.get() / 1e6 / reads : 0);
+        return failures.get();
+    }
+    
+    private interface PayloadFetch<T> {
+        byte[] fetch(T item) throws IOException;
+    }
+    
+    private interface PayloadSink<T> {
+        void accept(T item, byte[] payload) throws IOException;
+    }
+    
+    /**
+     * Fetches the payload of every item and hands them to the sink in list order. In adaptive
+     * mode fetches run concurrently through an adaptive concurrency limiter, with a bounded
+     * number of fetched payloads waiting for the sink; otherwise they run one at a time.
+     */
+    private <T> void fetchInOrder(String label, List<T> items, PayloadFetch<T> fetch, PayloadSink<T> sink)
+            throws IOException {
+        if (!isAdaptiveConcurrencyEnabled()) {
+            for (T item : items) {
+                sink.accept(item, fetch.fetch(item));
+            }
+            return;
+        }
+        
+        int initialConcurrency = fileSystem.getConf().getInt(CONCURRENCY_INITIAL, DEFAULT_CONCURRENCY_INITIAL);
+        try (AdaptiveConcurrencyLimiter limiter = newConcurrencyLimiter(label, initialConcurrency)) {
+            ExecutorService executor = Executors.newFixedThreadPool(limiter.getMaxLimit());
+            int window = limiter.getMaxLimit() * 2;
+            Deque<Future<byte[]>> pending = new ArrayDeque<>();
+            try {
+                int next = 0;
+                for (T item : items) {
+                    while (next < items.size() && pending.size() < window) {
+                        T fetched = items.get(next++);
+                        AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+                        pending.add(executor.submit(() -> {
+                            byte[] payload = null;
+                            Exception failure = null;
+                            try {
+                                payload = fetch.fetch(fetched);
+                                return payload;
+                            } catch (IOException | RuntimeException e) {
+                                failure = e;
+                                throw e;
+                            } finally {
+                                // Also frees the slot when the fetch throws an Error
+                                if (payload != null) {
+                                    limiter.onSuccess(permit, payload.length);
+                                } else {
+                                    limiter.onFailure(permit, failure);
+                                }
+                            }
+                        }));
+                    }
+                    sink.accept(item, awaitPayload(pending.poll()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(label + " interrupted");
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+    
+    private static byte[] awaitPayload(Future<byte[]> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+    
+    private byte[] readWholeFile(Path file) throws IOException {
+        return traced(OperationTrace.Op.READ, file.toString(), 0, -1, false, () -> {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            try (FSDataInputStream in = fileSystem.open(file)) {
+                copyAndCount(in, content);
+            }
+            return content.toByteArray();
+        }, content -> content.length);
+    }
+    
+    private byte[] readPacked(SmallFilePack pack, SmallFilePack.Entry entry) throws IOException {
+        return traced(OperationTrace.Op.PREAD, entry.getContainer().toString(), entry.getOffset(), entry.getLength(),
+                false, () -> pack.read(entry), payload -> payload.length);
+    }
+    
+    private static String relativeName(Path root, Path file) {
+        String rootPath = root.toUri().getPath();
+        String filePath = file.toUri().getPath();
+        if (filePath.equals(rootPath)) {
+            return file.getName();
+        }
+        String prefix = rootPath.endsWith("/") ? rootPath : rootPath + "/";
+        return filePath.startsWith(prefix) ? filePath.substring(prefix.length()) : file.getName();
+    }
+    
+    /**
+     * Replays an operation trace against this client's file system and compares the replayed
+     * latency distribution with the recorded one
+     * 
+     * @param traceFile the local trace file recorded with hdfs.client.trace.file
+     * @param workerCount number of concurrent workers
+     * @param speed "original", "max" for as fast as possible, or a speed-up factor such as "2"
+     * @param prepare whether to first create missing files and directories the trace reads
+     * @throws IOException if the trace cannot be read or prepared
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    public void replayTrace(String traceFile, int workerCount, String speed, boolean prepare) throws IOException, InterruptedException {
+        List<OperationTrace.Record> records = OperationTrace.read(new File(traceFile));
+        System.out.println("Loaded " + records.size() + " operations from trace: " + traceFile);
+        
+        double speedFactor;
+        if ("original".equals(speed)) {
+            speedFactor = 1.0;
+        } else if ("max".equals(speed)) {
+            speedFactor = 0;
+        } else {
+            speedFactor = Double.parseDouble(speed);
+            if (speedFactor <= 0) {
+                throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+            }
+        }
+        
+        TraceReplayer replayer = new TraceReplayer(fileSystem);
+        if (prepare) {
+            System.out.println("Created " + replayer.prepare(records) + " missing paths for replay");
+        }
+        System.out.println("Replaying at " + (speedFactor == 0 ? "maximum speed" : speedFactor + "x recorded speed")
+                + " with " + workerCount + " workers");
+        replayer.replay(records, workerCount, speedFactor);
+    }
+    
+    private interface TracedCall<T> {
+        T call() throws IOException;
+    }
+    
+    private interface ByteCount<T> {
+        long of(T result);
+    }
+    
+    private <T> T traced(OperationTrace.Op op, String path, long offset, long length, boolean flag,
+                         TracedCall<T> call, ByteCount<T> bytes) throws IOException {
+        if (traceFile == null) {
+            return call.call();
+        }
+        long startNanos = System.nanoTime();
+        T result;
+        try {
+            result = call.call();
+        } catch (IOException e) {
+            recordTrace(op, path, offset, length, flag, startNanos, 0, traceResult(e));
+            throw e;
+        } catch (RuntimeException e) {
+            recordTrace(op, path, offset, length, flag, startNanos, 0, OperationTrace.Result.ERROR);
+            throw e;
+        }
+        recordTrace(op, path, offset, length, flag, startNanos, bytes.of(result), OperationTrace.Result.OK);
+        return result;
+    }
+    
+    private void recordTrace(OperationTrace.Op op, String path, long offset, long length, boolean flag,
+                             long startNanos, long bytes, OperationTrace.Result result) {
+        OperationTrace.Writer writer = getTraceWriter();
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.record(op, path, offset, length, flag, startNanos, System.nanoTime() - startNanos, bytes, result);
+        } catch (IOException e) {
+            System.err.println("Failed to record trace for " + op + " " + path + ": " + e.getMessage());
+        }
+    }
+    
+    private synchronized OperationTrace.Writer getTraceWriter() {
+        if (traceWriter == null && traceFile != null) {
+            File segmentFile = OperationTrace.segmentFile(traceFile);
+            try {
+                traceWriter = new OperationTrace.Writer(segmentFile, traceOriginNanos);
+                System.out.println("Recording operation trace to: " + segmentFile);
+            } catch (IOException e) {
+                System.err.println("Failed to open trace file, tracing disabled: " + e.getMessage());
+                traceFile = null;
+            }
+        }
+        return traceWriter;
+    }
+    
+    private static OperationTrace.Result traceResult(IOException e) {
+        // Operations wrap their failures, so look through the cause chain
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof FileNotFoundException) {
+                return OperationTrace.Result.NOT_FOUND;
+            }
+        }
+        return OperationTrace.Result.ERROR;
+    }
+    
     /**
      * Creates a directory in HDFS
      * 
@@ -461,6 +1225,11 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public boolean createDirectory(String hdfsDirectoryPath) throws IOException {
+        return traced(OperationTrace.Op.MKDIR, hdfsDirectoryPath, 0, -1, false,
+                () -> createDirectoryUntraced(hdfsDirectoryPath), success -> 0);
+    }
+    
+    private boolean createDirectoryUntraced(String hdfsDirectoryPath) throws IOException {
         Path path = new Path(hdfsDirectoryPath);
         boolean success = fileSystem.mkdirs(path);
         if (success) {
@@ -480,6 +1249,11 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public boolean delete(String hdfsPath, boolean recursive) throws IOException {
+        return traced(OperationTrace.Op.DELETE, hdfsPath, 0, -1, recursive,
+                () -> deleteUntraced(hdfsPath, recursive), success -> 0);
+    }
+    
+    private boolean deleteUntraced(String hdfsPath, boolean recursive) throws IOException {
         Path path = new Path(hdfsPath);
         boolean success = fileSystem.delete(path, recursive);
         if (success) {
@@ -498,6 +1272,10 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public boolean exists(String hdfsPath) throws IOException {
+        return traced(OperationTrace.Op.EXISTS, hdfsPath, 0, -1, false, () -> existsUntraced(hdfsPath), exists -> 0);
+    }
+    
+    private boolean existsUntraced(String hdfsPath) throws IOException {
         Path path = new Path(hdfsPath);
         boolean exists = fileSystem.exists(path);
         System.out.println("Path " + hdfsPath + " exists: " + exists);
@@ -522,6 +1300,13 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during the operation
      */
     public void close() throws IOException {
+        synchronized (this) {
+            traceFile = null;
+            if (traceWriter != null) {
+                System.out.println("Recorded " + traceWriter.getRecordCount() + " operations to trace");
+                traceWriter.close();
+            }
+        }
         if (fileSystem != null) {
             fileSystem.close();
             System.out.println("HDFS client closed");
@@ -537,6 +1322,11 @@ public class HdfsClient implements AutoCloseable {
      * @throws IOException if an error occurs during reading
      */
     public byte[] readFileBytes(String hdfsFilePath, int maxBytes) throws IOException {
+        return traced(OperationTrace.Op.READ, hdfsFilePath, 0, maxBytes, false,
+                () -> readFileBytesUntraced(hdfsFilePath, maxBytes), content -> content.length);
+    }
+    
+    private byte[] readFileBytesUntraced(String hdfsFilePath, int maxBytes) throws IOException {
         System.out.println("Starting readFileBytes operation for path: " + hdfsFilePath + ", max bytes: " + maxBytes);
         long startTime = System.currentTimeMillis();
         
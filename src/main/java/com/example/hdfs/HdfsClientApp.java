@@ -3,30 +3,61 @@ package com.example.hdfs;
 import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.security.UserGroupInformation;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.List;
 
 public class HdfsClientApp {
     
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.err.println("Usage: HdfsClientApp <hdfs-uri> [operation] [params...]");
-            System.err.println("Operations:");
-            System.err.println("  list <path>                - List files in directory");
-            System.err.println("  read <file-path>           - Read file content");
-            System.err.println("  write <file-path> <content> [overwrite] - Write content to file");
-            System.err.println("  mkdir <dir-path>           - Create directory");
-            System.err.println("  delete <path> [recursive]  - Delete file or directory");
-            System.err.println("  exists <path>              - Check if path exists");
-            System.err.println("  whoami                     - Show current authenticated user");
-            System.err.println(" benchmarkRead <file/directory-path> [threadCount] [partialRead] [readLimitBytes] - Benchmark concurrent read");
+            printUsage();
             System.exit(1);
         }
 
         String hdfsUri = args[0];
-        String operation = args.length > 1 ? args[1] : "list";
         
+        int exitCode;
         try (HdfsClient hdfsClient = new HdfsClient(hdfsUri)) {
+            exitCode = runOperation(hdfsClient, args);
+        } catch (Exception e) {
+            reportError(e);
+            exitCode = 1;
+        }
+        
+        if (exitCode != 0) {
+            System.exit(exitCode);
+        }
+    }
+
+    /**
+     * Runs one CLI operation against an initialized client, resolving relative local paths
+     * against the current directory of this process
+     * 
+     * @param hdfsClient the client to run the operation with
+     * @param args the full command line: hdfs-uri, operation and parameters
+     * @return the process exit code for the operation
+     */
+    static int runOperation(HdfsClient hdfsClient, String[] args) {
+        return runOperation(hdfsClient, args, null);
+    }
+
+    /**
+     * Runs one CLI operation against an initialized client
+     * 
+     * @param hdfsClient the client to run the operation with
+     * @param args the full command line: hdfs-uri, operation and parameters
+     * @param workingDirectory directory that relative local paths (output files, trace files) are
+     *                         resolved against, or null for the current directory of this process
+     * @return the process exit code for the operation
+     */
+    static int runOperation(HdfsClient hdfsClient, String[] args, File workingDirectory) {
+        String operation = args.length > 1 ? args[1] : "list";
+        
+        try {
             switch (operation) {
                 case "list":
                     listOperation(hdfsClient, args);
@@ -52,24 +83,95 @@ public class HdfsClientApp {
                 case "benchmarkRead":
                     benchmarkHdfsConcurrentRead(hdfsClient, args);
                     break;    
+                case "readCompressed":
+                    readCompressedOperation(hdfsClient, args, workingDirectory);
+                    break;
+                case "writeCompressed":
+                    writeCompressedOperation(hdfsClient, args);
+                    break;
+                case "pack":
+                    packOperation(hdfsClient, args);
+                    break;
+                case "unpack":
+                    unpackOperation(hdfsClient, args);
+                    break;
+                case "readPacked":
+                    readPackedOperation(hdfsClient, args);
+                    break;
+                case "deletePacked":
+                    deletePackedOperation(hdfsClient, args);
+                    break;
+                case "compactPack":
+                    compactPackOperation(hdfsClient, args);
+                    break;
+                case "benchmarkPack":
+                    benchmarkPackOperation(hdfsClient, args);
+                    break;
+                case "replay":
+                    replayOperation(hdfsClient, args, workingDirectory);
+                    break;
+                case "showTrace":
+                    showTraceOperation(args, workingDirectory);
+                    break;
                 default:
                     System.err.println("Unknown operation: " + operation);
-                    System.exit(1);
+                    return 1;
             }
+            return 0;
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            return 1;
         } catch (Exception e) {
-            System.err.println("Error executing operation: " + e.getMessage());
-            e.printStackTrace();
-            
-            // Specifically handle Kerberos authentication errors
-            if (e.getMessage() != null && e.getMessage().contains("Kerberos")) {
-                System.err.println("\nKerberos authentication error. Please check:");
-                System.err.println("1. The keytab file exists and is readable");
-                System.err.println("2. The principal is correct");
-                System.err.println("3. The keytab file contains keys for the specified principal");
-                System.err.println("4. The client has the correct time (time skew can cause authentication failures)");
-            }
-            
-            System.exit(1);
+            reportError(e);
+            return 1;
+        }
+    }
+
+    static void printUsage() {
+        System.err.println("Usage: HdfsClientApp <hdfs-uri> [operation] [params...]");
+        System.err.println("Operations:");
+        System.err.println("  list <path>                - List files in directory");
+        System.err.println("  read <file-path>           - Read file content");
+        System.err.println("  write <file-path> <content> [overwrite] - Write content to file");
+        System.err.println("  mkdir <dir-path>           - Create directory");
+        System.err.println("  delete <path> [recursive]  - Delete file or directory");
+        System.err.println("  exists <path>              - Check if path exists");
+        System.err.println("  whoami                     - Show current authenticated user");
+        System.err.println(" benchmarkRead <file/directory-path> [threadCount] [partialRead] [readLimitBytes] [adaptive] - Benchmark concurrent read");
+        System.err.println("  readCompressed <file-path> [threadCount] [local-output-path] - Read and decompress file by extension");
+        System.err.println("  writeCompressed <file-path> <content> [overwrite] - Write content compressed by extension");
+        System.err.println("  pack <source-dir> <pack-dir>  - Pack small files into block-sized containers");
+        System.err.println("  unpack <pack-dir> <target-dir> [overwrite] - Extract packed entries to files");
+        System.err.println("  readPacked <pack-dir> <entry-name> - Read a single packed entry");
+        System.err.println("  deletePacked <pack-dir> <entry-name>... - Mark packed entries as deleted");
+        System.err.println("  compactPack <pack-dir>        - Rewrite containers without deleted entries");
+        System.err.println("  benchmarkPack <source-dir> <pack-dir> [threadCount] [adaptive] - Compare per-file and packed reads");
+        System.err.println("  replay <trace-file> [workers] [original|max|speedup] [prepare] - Replay a recorded operation trace");
+        System.err.println("  showTrace <trace-file>        - Print the records of an operation trace");
+    }
+
+    private static void reportError(Exception e) {
+        System.err.println("Error executing operation: " + e.getMessage());
+        e.printStackTrace();
+        
+        // Specifically handle Kerberos authentication errors
+        if (e.getMessage() != null && e.getMessage().contains("Kerberos")) {
+            System.err.println("\nKerberos authentication error. Please check:");
+            System.err.println("1. The keytab file exists and is readable");
+            System.err.println("2. The principal is correct");
+            System.err.println("3. The keytab file contains keys for the specified principal");
+            System.err.println("4. The client has the correct time (time skew can cause authentication failures)");
+        }
+    }
+
+    /**
+     * Invalid or missing operation parameters; reported without a stack trace
+     */
+    private static class UsageException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
         }
     }
 
@@ -89,8 +191,7 @@ public class HdfsClientApp {
 
     private static void readOperation(HdfsClient hdfsClient, String[] args) throws IOException {
         if (args.length < 3) {
-            System.err.println("Missing file path for read operation");
-            System.exit(1);
+            throw new UsageException("Missing file path for read operation");
         }
         
         String filePath = args[2];
@@ -99,8 +200,7 @@ public class HdfsClientApp {
     
     private static void benchmarkHdfsConcurrentRead(HdfsClient hdfsClient, String[] args) throws IOException, InterruptedException {
         if (args.length < 3) {
-            System.err.println("Missing file path for benchmark operation");
-            System.exit(1);
+            throw new UsageException("Missing file path for benchmark operation");
         }
         
         String filePath = args[2];
@@ -110,13 +210,17 @@ public class HdfsClientApp {
         
         long readLimitBytes = args.length > 5 ? Integer.parseInt(args[5]) : 65536;
         
-        hdfsClient.benchmarkConcurrentRead(filePath, threadCount, partialRead, readLimitBytes);
+        if (args.length > 6) {
+            boolean adaptive = Boolean.parseBoolean(args[6]);
+            hdfsClient.benchmarkConcurrentRead(filePath, threadCount, partialRead, readLimitBytes, adaptive);
+        } else {
+            hdfsClient.benchmarkConcurrentRead(filePath, threadCount, partialRead, readLimitBytes);
+        }
     }
 
     private static void writeOperation(HdfsClient hdfsClient, String[] args) throws IOException {
         if (args.length < 4) {
-            System.err.println("Missing parameters for write operation");
-            System.exit(1);
+            throw new UsageException("Missing parameters for write operation");
         }
         
         String filePath = args[2];
@@ -127,10 +231,125 @@ public class HdfsClientApp {
         System.out.println("Successfully wrote to " + filePath);
     }
 
+    private static File localFile(String path, File workingDirectory) {
+        File file = new File(path);
+        return file.isAbsolute() || workingDirectory == null ? file : new File(workingDirectory, path);
+    }
+
+    private static void readCompressedOperation(HdfsClient hdfsClient, String[] args, File workingDirectory) throws IOException {
+        if (args.length < 3) {
+            throw new UsageException("Missing file path for readCompressed operation");
+        }
+        
+        String filePath = args[2];
+        int threadCount = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        
+        if (args.length > 4) {
+            File outputPath = localFile(args[4], workingDirectory);
+            try (OutputStream out = new FileOutputStream(outputPath)) {
+                hdfsClient.readCompressedFile(filePath, out, threadCount);
+            }
+            System.out.println("Decompressed content written to " + outputPath);
+        } else {
+            hdfsClient.readCompressedFile(filePath, null, threadCount);
+        }
+    }
+
+    private static void writeCompressedOperation(HdfsClient hdfsClient, String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new UsageException("Missing parameters for writeCompressed operation");
+        }
+        
+        String filePath = args[2];
+        String content = args[3];
+        boolean overwrite = args.length > 4 && Boolean.parseBoolean(args[4]);
+        
+        hdfsClient.writeCompressedFile(filePath, content, overwrite);
+        System.out.println("Successfully wrote compressed content to " + filePath);
+    }
+
+    private static void packOperation(HdfsClient hdfsClient, String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new UsageException("Missing parameters for pack operation");
+        }
+        
+        hdfsClient.packFiles(args[2], args[3]);
+    }
+
+    private static void unpackOperation(HdfsClient hdfsClient, String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new UsageException("Missing parameters for unpack operation");
+        }
+        
+        boolean overwrite = args.length > 4 && Boolean.parseBoolean(args[4]);
+        hdfsClient.unpackFiles(args[2], args[3], overwrite);
+    }
+
+    private static void readPackedOperation(HdfsClient hdfsClient, String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new UsageException("Missing parameters for readPacked operation");
+        }
+        
+        hdfsClient.readPackedEntry(args[2], args[3]);
+    }
+
+    private static void deletePackedOperation(HdfsClient hdfsClient, String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new UsageException("Missing parameters for deletePacked operation");
+        }
+        
+        hdfsClient.deletePackedEntries(args[2], Arrays.asList(args).subList(3, args.length));
+    }
+
+    private static void compactPackOperation(HdfsClient hdfsClient, String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new UsageException("Missing pack directory for compactPack operation");
+        }
+        
+        hdfsClient.compactPack(args[2]);
+    }
+
+    private static void benchmarkPackOperation(HdfsClient hdfsClient, String[] args) throws IOException, InterruptedException {
+        if (args.length < 4) {
+            throw new UsageException("Missing parameters for benchmarkPack operation");
+        }
+        
+        int threadCount = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+        if (args.length > 5) {
+            hdfsClient.benchmarkPackedRead(args[2], args[3], threadCount, Boolean.parseBoolean(args[5]));
+        } else {
+            hdfsClient.benchmarkPackedRead(args[2], args[3], threadCount);
+        }
+    }
+
+    private static void replayOperation(HdfsClient hdfsClient, String[] args, File workingDirectory) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            throw new UsageException("Missing trace file for replay operation");
+        }
+        
+        String traceFile = localFile(args[2], workingDirectory).getPath();
+        int workerCount = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        String speed = args.length > 4 ? args[4] : "original";
+        boolean prepare = args.length > 5 && Boolean.parseBoolean(args[5]);
+        
+        hdfsClient.replayTrace(traceFile, workerCount, speed, prepare);
+    }
+
+    private static void showTraceOperation(String[] args, File workingDirectory) throws IOException {
+        if (args.length < 3) {
+            throw new UsageException("Missing trace file for showTrace operation");
+        }
+        
+        List<OperationTrace.Record> records = OperationTrace.read(localFile(args[2], workingDirectory));
+        for (OperationTrace.Record record : records) {
+            System.out.println(record);
+        }
+        System.out.println(records.size() + " operations");
+    }
+
     private static void mkdirOperation(HdfsClient hdfsClient, String[] args) throws IOException {
         if (args.length < 3) {
-            System.err.println("Missing directory path for mkdir operation");
-            System.exit(1);
+            throw new UsageException("Missing directory path for mkdir operation");
         }
         
         String dirPath = args[2];
@@ -140,8 +359,7 @@ public class HdfsClientApp {
 
     private static void deleteOperation(HdfsClient hdfsClient, String[] args) throws IOException {
         if (args.length < 3) {
-            System.err.println("Missing path for delete operation");
-            System.exit(1);
+            throw new UsageException("Missing path for delete operation");
         }
         
         String path = args[2];
@@ -153,8 +371,7 @@ public class HdfsClientApp {
 
     private static void existsOperation(HdfsClient hdfsClient, String[] args) throws IOException {
         if (args.length < 3) {
-            System.err.println("Missing path for exists operation");
-            System.exit(1);
+            throw new UsageException("Missing path for exists operation");
         }
         
         String path = args[2];
@@ -0,0 +1,759 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.security.UserGroupInformation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-running process that keeps warm {@link HdfsClient} instances and serves CLI operations
+ * over a loopback socket, so each command skips JVM startup, configuration parsing, Kerberos
+ * login and NameNode connection setup.
+ *
+ * <p>Protocol, one request per connection. The client sends the token line, then the caller's
+ * working directory, a line with the argument count and each argument; the working directory
+ * and the arguments are sent as a line with their length in bytes followed by the UTF-8 bytes.
+ * The first argument is the HDFS URI as for {@link HdfsClientApp}, or one of {@code --stats}
+ * and {@code --shutdown}. Relative local paths in the arguments are resolved against the
+ * caller's working directory.
+ *
+ * <p>The daemon answers with tagged lines: {@code o <line>} and {@code e <line>} for complete
+ * lines of stdout and stderr, {@code O <text>} and {@code E <text>} for output flushed without
+ * a line break, and finally {@code x <exit-code>}.
+ *
+ * <p>{@code System.out} and {@code System.err} are replaced by streams that send the output of
+ * a request thread to that request's own {@link PrintStream}, so a client that stops reading only
+ * blocks its own request. A request whose client does not accept output for
+ * {@value #REQUEST_WRITE_TIMEOUT_MS} ms is aborted. Output of other threads, including threads
+ * started by a request, goes to the daemon's own streams.
+ */
+public class HdfsClientDaemon {
+    private static final int DEFAULT_THREADS = 32;
+    private static final long RELOGIN_CHECK_INTERVAL_MS = 60 * 1000;
+    private static final int MAX_ARGUMENTS = 1024;
+    private static final int MAX_ARGUMENT_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_LINE_BYTES = 128;
+    private static final int REQUEST_READ_TIMEOUT_MS = 10 * 1000;
+    private static final int REQUEST_WRITE_TIMEOUT_MS = 30 * 1000;
+    private static final long WRITE_WATCHDOG_INTERVAL_MS = 1000;
+
+    /** Output of the request being served by the current worker thread */
+    private static final ThreadLocal<RequestOutput> REQUEST_OUTPUT = new ThreadLocal<>();
+
+    private final ServerSocket serverSocket;
+    private final byte[] token;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService relogin;
+    private final ScheduledExecutorService writeWatchdog;
+    private final Set<RequestOutput> activeOutputs = ConcurrentHashMap.newKeySet();
+    private final Map<String, HdfsClient> clients = new HashMap<>();
+    private final Map<String, Long> clientInitMillis = new LinkedHashMap<>();
+    private final Map<String, List<Long>> commandNanos = new LinkedHashMap<>();
+    private final long jvmStartupMillis;
+    private volatile boolean running = true;
+
+    HdfsClientDaemon(int port, byte[] token, int threadCount) throws IOException {
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        this.token = token;
+        this.workers = Executors.newFixedThreadPool(threadCount);
+        this.relogin = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "kerberos-relogin");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writeWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "request-write-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jvmStartupMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: HdfsClientDaemon <port> <token-file> [threads]");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        File tokenFile = new File(args[1]);
+        int threadCount = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_THREADS;
+
+        installOutputRouting();
+
+        byte[] token = newToken();
+        HdfsClientDaemon daemon = new HdfsClientDaemon(port, token, threadCount);
+        writeTokenFile(tokenFile, token);
+        System.out.println("HDFS client daemon listening on " + daemon.serverSocket.getLocalSocketAddress()
+                + " with " + threadCount + " worker threads, JVM startup took " + daemon.jvmStartupMillis + " ms");
+        try {
+            daemon.serve();
+        } finally {
+            tokenFile.delete();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Replaces {@code System.out} and {@code System.err} with streams that write to the output of
+     * the request served by the current thread, or to the previous streams otherwise
+     */
+    static void installOutputRouting() {
+        System.setOut(new RoutedPrintStream(System.out, RequestOutput.STDOUT));
+        System.setErr(new RoutedPrintStream(System.err, RequestOutput.STDERR));
+    }
+
+    /**
+     * @return the port the daemon listens on
+     */
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private static byte[] newToken() {
+        byte[] random = new byte[16];
+        new SecureRandom().nextBytes(random);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : random) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void writeTokenFile(File tokenFile, byte[] token) throws IOException {
+        File parent = tokenFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        tokenFile.delete();
+        try {
+            Files.createFile(tokenFile.toPath(),
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system; fall back to restricting access after creation
+            tokenFile.createNewFile();
+            tokenFile.setReadable(false, false);
+            tokenFile.setReadable(true, true);
+        }
+        try (OutputStream out = new FileOutputStream(tokenFile)) {
+            out.write(token);
+        }
+    }
+
+    /**
+     * Accepts connections until a shutdown request arrives
+     *
+     * @throws IOException if accepting fails for a reason other than shutdown
+     */
+    void serve() throws IOException {
+        relogin.scheduleWithFixedDelay(HdfsClientDaemon::reloginIfNeeded,
+                RELOGIN_CHECK_INTERVAL_MS, RELOGIN_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        writeWatchdog.scheduleWithFixedDelay(this::abortStalledRequests,
+                WRITE_WATCHDOG_INTERVAL_MS, WRITE_WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        try {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (!running) {
+                        break;
+                    }
+                    throw e;
+                }
+                workers.submit(() -> handle(socket));
+            }
+        } finally {
+            shutdown();
+        }
+    }
+
+    private static void reloginIfNeeded() {
+        try {
+            if (UserGroupInformation.isSecurityEnabled()) {
+                UserGroupInformation loginUser = UserGroupInformation.getLoginUser();
+                if (loginUser.isFromKeytab()) {
+                    // Only renews when the ticket is close to expiry
+                    loginUser.checkTGTAndReloginFromKeytab();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Kerberos ticket renewal failed: " + e.getMessage());
+        }
+    }
+
+    private void abortStalledRequests() {
+        long now = System.nanoTime();
+        for (RequestOutput output : activeOutputs) {
+            if (output.isStalled(now, TimeUnit.MILLISECONDS.toNanos(REQUEST_WRITE_TIMEOUT_MS))) {
+                System.err.println("[daemon] Aborting request: client did not read its output for "
+                        + REQUEST_WRITE_TIMEOUT_MS + " ms");
+                output.abort();
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        long startNanos = System.nanoTime();
+        String label = "unknown";
+        int exitCode = 1;
+        try (Socket connection = socket) {
+            // Idle or slow clients must not pin a worker; only reading the request can time out
+            connection.setSoTimeout(REQUEST_READ_TIMEOUT_MS);
+            InputStream in = new BufferedInputStream(connection.getInputStream());
+            RequestOutput output = new RequestOutput(connection);
+            activeOutputs.add(output);
+            try {
+                try {
+                    if (!MessageDigest.isEqual(token, readLine(in).getBytes(StandardCharsets.US_ASCII))) {
+                        output.write(RequestOutput.STDERR, "Invalid daemon token\n");
+                    } else {
+                        File workingDirectory = new File(readField(in));
+                        if (!workingDirectory.isAbsolute()) {
+                            throw new IOException("Working directory must be absolute: " + workingDirectory);
+                        }
+                        String[] args = readArguments(in);
+                        label = args.length > 1 && !args[0].startsWith("--") ? args[1] : (args.length > 0 ? args[0] : "");
+                        REQUEST_OUTPUT.set(output);
+                        try {
+                            exitCode = execute(args, workingDirectory);
+                        } finally {
+                            REQUEST_OUTPUT.remove();
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    output.write(RequestOutput.STDERR, "Daemon request failed: " + e + "\n");
+                }
+                output.finish(exitCode);
+            } finally {
+                activeOutputs.remove(output);
+                output.detach();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to serve daemon request: " + e.getMessage());
+        }
+
+        long elapsedNanos = System.nanoTime() - startNanos;
+        recordLatency(label, elapsedNanos);
+        System.out.printf("[daemon] %s exit=%d in %.1f ms%n", label, exitCode, elapsedNanos / 1e6);
+    }
+
+    private static String[] readArguments(InputStream in) throws IOException {
+        int count = Integer.parseInt(readLine(in).trim());
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException("Invalid argument count: " + count);
+        }
+        String[] args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = readField(in);
+        }
+        return args;
+    }
+
+    private static String readField(InputStream in) throws IOException {
+        int length = Integer.parseInt(readLine(in).trim());
+        if (length < 0 || length > MAX_ARGUMENT_BYTES) {
+            throw new IOException("Invalid argument length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(bytes, offset, length - offset);
+            if (read < 0) {
+                throw new IOException("Connection closed while reading arguments");
+            }
+            offset += read;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a token, count or length line. These are short, so the length is capped to keep
+     * unauthenticated clients from growing the buffer.
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Connection closed while reading request");
+            }
+            if (line.size() >= MAX_LINE_BYTES) {
+                throw new IOException("Request line longer than " + MAX_LINE_BYTES + " bytes");
+            }
+            line.write(b);
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private int execute(String[] args, File workingDirectory) {
+        if (args.length < 1) {
+            HdfsClientApp.printUsage();
+            return 1;
+        }
+        switch (args[0]) {
+            case "--stats":
+                printStats();
+                return 0;
+            case "--shutdown":
+                System.out.println("HDFS client daemon shutting down");
+                running = false;
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close daemon socket: " + e.getMessage());
+                }
+                return 0;
+            default:
+                break;
+        }
+
+        HdfsClient hdfsClient;
+        // Clients are shared by all requests, so their setup output belongs to the daemon log
+        RequestOutput output = REQUEST_OUTPUT.get();
+        REQUEST_OUTPUT.remove();
+        try {
+            hdfsClient = getClient(args[0]);
+        } catch (IOException e) {
+            REQUEST_OUTPUT.set(output);
+            System.err.println("Error executing operation: " + e.getMessage());
+            return 1;
+        }
+        REQUEST_OUTPUT.set(output);
+        return HdfsClientApp.runOperation(hdfsClient, args, workingDirectory);
+    }
+
+    private synchronized HdfsClient getClient(String hdfsUri) throws IOException {
+        HdfsClient hdfsClient = clients.get(hdfsUri);
+        if (hdfsClient == null) {
+            long start = System.currentTimeMillis();
+            hdfsClient = new HdfsClient(hdfsUri);
+            clientInitMillis.put(hdfsUri, System.currentTimeMillis() - start);
+            clients.put(hdfsUri, hdfsClient);
+        }
+        return hdfsClient;
+    }
+
+    private void recordLatency(String label, long elapsedNanos) {
+        synchronized (commandNanos) {
+            commandNanos.computeIfAbsent(label, key -> new ArrayList<>()).add(elapsedNanos);
+        }
+    }
+
+    private void printStats() {
+        long coldStartOverhead = jvmStartupMillis;
+        synchronized (this) {
+            System.out.println("JVM startup: " + jvmStartupMillis + " ms");
+            for (Map.Entry<String, Long> init : clientInitMillis.entrySet()) {
+                System.out.println("Client init for " + init.getKey() + ": " + init.getValue() + " ms");
+                coldStartOverhead = Math.max(coldStartOverhead, jvmStartupMillis + init.getValue());
+            }
+        }
+        System.out.printf("Cold-start overhead per command (JVM startup + client init): at least %d ms%n", coldStartOverhead);
+        System.out.printf("%-16s %8s %10s %10s %10s %10s%n", "command", "count", "mean ms", "p50 ms", "p99 ms", "max ms");
+        synchronized (commandNanos) {
+            for (Map.Entry<String, List<Long>> entry : commandNanos.entrySet()) {
+                List<Long> latencies = new ArrayList<>(entry.getValue());
+                Collections.sort(latencies);
+                double mean = 0;
+                for (long latency : latencies) {
+                    mean += latency;
+                }
+                mean /= latencies.size();
+                System.out.printf("%-16s %8d %10.2f %10.2f %10.2f %10.2f%n", entry.getKey(), latencies.size(),
+                        mean / 1e6, percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                        latencies.get(latencies.size() - 1) / 1e6);
+            }
+        }
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+    }
+
+    private void shutdown() {
+        relogin.shutdownNow();
+        writeWatchdog.shutdownNow();
+        workers.shutdown();
+        try {
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (HdfsClient hdfsClient : clients.values()) {
+                try {
+                    hdfsClient.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close client: " + e.getMessage());
+                }
+            }
+            clients.clear();
+        }
+    }
+
+    /**
+     * Socket output of one request, framed as tagged lines so the client can keep stdout and
+     * stderr apart. Only the threads of this request write here, so a client that stops reading
+     * blocks nobody else; the socket write that has been blocked the longest is visible to the
+     * watchdog through {@link #isStalled}. Writes after the request finished or was aborted are
+     * dropped.
+     */
+    private static class RequestOutput {
+        static final int STDOUT = 0;
+        static final int STDERR = 1;
+        private static final byte[] LINE_TAGS = {'o', 'e'};
+        private static final byte[] FRAGMENT_TAGS = {'O', 'E'};
+
+        private final Socket connection;
+        private final OutputStream out;
+        private final ByteArrayOutputStream[] partialLines = {new ByteArrayOutputStream(), new ByteArrayOutputStream()};
+        private final PrintStream[] printStreams;
+        private final Object abortLock = new Object();
+        private Thread requestThread = Thread.currentThread();
+        private volatile long writeStartNanos;
+        private volatile boolean aborted;
+        private boolean finished;
+
+        RequestOutput(Socket connection) throws IOException {
+            this.connection = connection;
+            this.out = new BufferedOutputStream(new TimedOutputStream(connection.getOutputStream()));
+            this.printStreams = new PrintStream[]{
+                    new PrintStream(new StreamOutput(STDOUT), true), new PrintStream(new StreamOutput(STDERR), true)};
+        }
+
+        PrintStream printStream(int stream) {
+            return printStreams[stream];
+        }
+
+        synchronized void write(int stream, byte[] b, int off, int len) throws IOException {
+            if (finished || aborted) {
+                return;
+            }
+            int lineStart = off;
+            for (int i = off; i < off + len; i++) {
+                if (b[i] == '\n') {
+                    writeFrame(LINE_TAGS[stream], partialLines[stream], b, lineStart, i - lineStart);
+                    lineStart = i + 1;
+                }
+            }
+            partialLines[stream].write(b, lineStart, off + len - lineStart);
+        }
+
+        void write(int stream, String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            write(stream, bytes, 0, bytes.length);
+        }
+
+        private void writeFrame(byte tag, ByteArrayOutputStream partialLine, byte[] b, int off, int len) throws IOException {
+            out.write(tag);
+            out.write(' ');
+            partialLine.writeTo(out);
+            partialLine.reset();
+            out.write(b, off, len);
+            out.write('\n');
+        }
+
+        private void writePartialLines() throws IOException {
+            for (int stream = STDOUT; stream <= STDERR; stream++) {
+                if (partialLines[stream].size() > 0) {
+                    writeFrame(FRAGMENT_TAGS[stream], partialLines[stream], new byte[0], 0, 0);
+                }
+            }
+        }
+
+        synchronized void flush() throws IOException {
+            if (!finished && !aborted) {
+                writePartialLines();
+                out.flush();
+            }
+        }
+
+        synchronized void finish(int exitCode) throws IOException {
+            if (aborted) {
+                return;
+            }
+            printStreams[STDOUT].flush();
+            printStreams[STDERR].flush();
+            writePartialLines();
+            out.write(("x " + exitCode + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            finished = true;
+        }
+
+        /**
+         * Marks the request thread as no longer running this request, so a later abort does not
+         * interrupt whatever the thread runs next
+         */
+        void detach() {
+            synchronized (abortLock) {
+                requestThread = null;
+            }
+        }
+
+        boolean isStalled(long nowNanos, long timeoutNanos) {
+            long start = writeStartNanos;
+            return start != 0 && nowNanos - start > timeoutNanos;
+        }
+
+        /**
+         * Drops further output, closes the connection to unblock a pending write and interrupts
+         * the request
+         */
+        void abort() {
+            aborted = true;
+            try {
+                connection.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+            synchronized (abortLock) {
+                if (requestThread != null) {
+                    requestThread.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Socket stream that records when the pending write started
+         */
+        private class TimedOutputStream extends OutputStream {
+            private final OutputStream socketOut;
+
+            TimedOutputStream(OutputStream socketOut) {
+                this.socketOut = socketOut;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writeStartNanos = System.nanoTime();
+                try {
+                    socketOut.write(b, off, len);
+                } finally {
+                    writeStartNanos = 0;
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writeStartNanos = System.nanoTime();
+                try {
+                    socketOut.flush();
+                } finally {
+                    writeStartNanos = 0;
+                }
+            }
+        }
+
+        /**
+         * One of the two streams of the request, as seen by its {@link PrintStream}
+         */
+        private class StreamOutput extends OutputStream {
+            private final int stream;
+
+            StreamOutput(int stream) {
+                this.stream = stream;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                RequestOutput.this.write(stream, b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                RequestOutput.this.flush();
+            }
+        }
+    }
+
+    /**
+     * Replacement for {@code System.out} or {@code System.err} that passes every call on to the
+     * {@link PrintStream} of the request served by the current thread, or to the daemon's own
+     * stream when the thread is not serving a request. It never takes a lock itself, since the
+     * monitor of this stream would otherwise be shared by all requests while one of them blocks
+     * on a slow client.
+     */
+    private static class RoutedPrintStream extends PrintStream {
+        private final PrintStream fallback;
+        private final int stream;
+
+        RoutedPrintStream(PrintStream fallback, int stream) {
+            super(fallback, true);
+            this.fallback = fallback;
+            this.stream = stream;
+        }
+
+        private PrintStream target() {
+            RequestOutput output = REQUEST_OUTPUT.get();
+            return output != null ? output.printStream(stream) : fallback;
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            target().write(b, off, len);
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+
+        @Override
+        public boolean checkError() {
+            return target().checkError();
+        }
+
+        @Override
+        public void print(boolean b) {
+            target().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            target().print(c);
+        }
+
+        @Override
+        public void print(int i) {
+            target().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            target().print(l);
+        }
+
+        @Override
+        public void print(float f) {
+            target().print(f);
+        }
+
+        @Override
+        public void print(double d) {
+            target().print(d);
+        }
+
+        @Override
+        public void print(char[] s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(String s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(Object obj) {
+            target().print(obj);
+        }
+
+        @Override
+        public void println() {
+            target().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            target().println(x);
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            target().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            target().format(l, format, args);
+            return this;
+        }
+    }
+}
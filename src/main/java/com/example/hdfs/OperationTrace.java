@@ -0,0 +1,407 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compact binary trace of the file system operations issued by {@link HdfsClient}.
+ *
+ * <p>Each process records to its own segment file {@code <trace-file>.<pid>}, so a sequence of CLI
+ * calls leaves one segment per call and none overwrites another. A segment starts with a magic, a
+ * format version and the wall-clock time at which recording started; a process that reuses the
+ * pid of an earlier one appends a new segment to the same file. Each record then holds the
+ * operation, a flag bit (overwrite for writes,
+ * recursive for deletes), the result, the path, the requested offset and length, the start
+ * time relative to the start of recording, the duration and the number of bytes transferred.
+ * Numbers are stored as variable-length integers, so a typical record takes a few dozen bytes.
+ *
+ * <p>Records are written to the file in whole records every 64 KB and at least once per second,
+ * so a recorder that is killed or crashes loses at most its last second of records.
+ */
+public final class OperationTrace {
+    private static final byte[] MAGIC = {'H', 'T', 'R', 'C'};
+    private static final int VERSION = 1;
+
+    /**
+     * Traced operations. Codes are stored in trace files and must not change.
+     */
+    public enum Op {
+        LIST(0), READ(1), PREAD(2), WRITE(3), MKDIR(4), DELETE(5), EXISTS(6);
+
+        private final int code;
+
+        Op(int code) {
+            this.code = code;
+        }
+
+        static Op fromCode(int code) throws IOException {
+            for (Op op : values()) {
+                if (op.code == code) {
+                    return op;
+                }
+            }
+            throw new IOException("Unknown trace operation code: " + code);
+        }
+    }
+
+    /**
+     * Outcome of a traced operation. Codes are stored in trace files and must not change.
+     */
+    public enum Result {
+        OK(0), NOT_FOUND(1), ERROR(2);
+
+        private final int code;
+
+        Result(int code) {
+            this.code = code;
+        }
+
+        static Result fromCode(int code) throws IOException {
+            for (Result result : values()) {
+                if (result.code == code) {
+                    return result;
+                }
+            }
+            throw new IOException("Unknown trace result code: " + code);
+        }
+    }
+
+    /**
+     * A single traced operation
+     */
+    public static class Record {
+        private final Op op;
+        private final boolean flag;
+        private final Result result;
+        private final String path;
+        private final long offset;
+        private final long length;
+        private final long startNanos;
+        private final long durationNanos;
+        private final long bytes;
+
+        Record(Op op, boolean flag, Result result, String path, long offset, long length,
+               long startNanos, long durationNanos, long bytes) {
+            this.op = op;
+            this.flag = flag;
+            this.result = result;
+            this.path = path;
+            this.offset = offset;
+            this.length = length;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.bytes = bytes;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        /**
+         * @return overwrite for WRITE, recursive for DELETE, false otherwise
+         */
+        public boolean getFlag() {
+            return flag;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return requested length, or -1 when the operation reads to the end of the file
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * @return start time in nanoseconds since recording started
+         */
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%12.3f ms %-6s %-9s %s offset=%d length=%d bytes=%d duration=%.3f ms%s",
+                    startNanos / 1e6, op, result, path, offset, length, bytes, durationNanos / 1e6,
+                    flag ? " flag" : "");
+        }
+    }
+
+    /**
+     * Appends records to a local trace file. Safe to use from several threads.
+     */
+    public static class Writer implements Closeable, Flushable {
+        private static final int FLUSH_BYTES = 64 * 1024;
+        private static final long FLUSH_INTERVAL_MS = 1000;
+
+        private final FileOutputStream file;
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(pending);
+        private final ScheduledExecutorService flusher;
+        private final long originNanos;
+        private long recordCount;
+
+        /**
+         * Starts a new segment at the end of the given file, creating it if needed
+         *
+         * @param segmentFile the local file to write, usually {@link #segmentFile(File)}
+         * @param originNanos {@link System#nanoTime()} at which recording started; record start
+         *                    times are stored relative to it
+         * @throws IOException if the file cannot be opened
+         */
+        public Writer(File segmentFile, long originNanos) throws IOException {
+            this.file = new FileOutputStream(segmentFile, true);
+            this.originNanos = originNanos;
+            out.write(MAGIC);
+            WritableUtils.writeVInt(out, VERSION);
+            out.writeLong(System.currentTimeMillis() - (System.nanoTime() - originNanos) / 1000000L);
+            flush();
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "trace-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushInBackground, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Appends a record
+         *
+         * @param op the operation
+         * @param path the path the operation was issued for
+         * @param offset the requested offset
+         * @param length the requested length, or -1 for the whole file
+         * @param flag overwrite for WRITE, recursive for DELETE
+         * @param startNanos {@link System#nanoTime()} at which the operation started
+         * @param durationNanos how long the operation took
+         * @param bytes bytes transferred
+         * @param result the outcome
+         * @throws IOException if the record cannot be written
+         */
+        public synchronized void record(Op op, String path, long offset, long length, boolean flag,
+                                        long startNanos, long durationNanos, long bytes, Result result) throws IOException {
+            out.writeByte(op.code);
+            out.writeByte((flag ? 1 : 0) | (result.code << 1));
+            byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            WritableUtils.writeVInt(out, pathBytes.length);
+            out.write(pathBytes);
+            WritableUtils.writeVLong(out, offset);
+            WritableUtils.writeVLong(out, length);
+            WritableUtils.writeVLong(out, startNanos - originNanos);
+            WritableUtils.writeVLong(out, durationNanos);
+            WritableUtils.writeVLong(out, bytes);
+            recordCount++;
+            if (pending.size() >= FLUSH_BYTES) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes the buffered records to the file
+         *
+         * @throws IOException if the records cannot be written
+         */
+        @Override
+        public synchronized void flush() throws IOException {
+            if (pending.size() > 0) {
+                // One write per batch of whole records, so the file never ends inside a record
+                // unless the process dies during the write itself
+                pending.writeTo(file);
+                pending.reset();
+            }
+        }
+
+        private void flushInBackground() {
+            try {
+                flush();
+            } catch (IOException e) {
+                System.err.println("Failed to write operation trace: " + e.getMessage());
+            }
+        }
+
+        /**
+         * @return number of records written so far
+         */
+        public synchronized long getRecordCount() {
+            return recordCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flusher.shutdownNow();
+            synchronized (this) {
+                try {
+                    flush();
+                } finally {
+                    file.close();
+                }
+            }
+        }
+    }
+
+    private OperationTrace() {
+    }
+
+    /**
+     * @param traceFile the configured trace file
+     * @return the segment file this process records to
+     */
+    public static File segmentFile(File traceFile) {
+        String jvmName = ManagementFactory.getRuntimeMXBean().getName(); // "<pid>@<host>"
+        return new File(traceFile.getPath() + "." + jvmName.substring(0, Math.max(0, jvmName.indexOf('@'))));
+    }
+
+    /**
+     * Reads all records of a trace, sorted by start time. Records of different segments are placed
+     * on a common timeline using the wall-clock start time of each segment.
+     *
+     * @param traceFile a single segment file, or the configured trace file to read all of its
+     *                  {@code <trace-file>.<pid>} segments
+     * @return the records
+     * @throws IOException if no segment exists, or a segment cannot be read or is not a trace file
+     */
+    public static List<Record> read(File traceFile) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        for (File file : segmentFiles(traceFile)) {
+            readSegments(file, segments);
+        }
+
+        long originMillis = Long.MAX_VALUE;
+        for (Segment segment : segments) {
+            originMillis = Math.min(originMillis, segment.startMillis);
+        }
+        List<Record> records = new ArrayList<>();
+        for (Segment segment : segments) {
+            long shiftNanos = (segment.startMillis - originMillis) * 1000000L;
+            for (Record record : segment.records) {
+                records.add(shiftNanos == 0 ? record : new Record(record.op, record.flag, record.result, record.path,
+                        record.offset, record.length, record.startNanos + shiftNanos, record.durationNanos, record.bytes));
+            }
+        }
+        records.sort((a, b) -> Long.compare(a.getStartNanos(), b.getStartNanos()));
+        return records;
+    }
+
+    private static List<File> segmentFiles(File traceFile) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (traceFile.isFile()) {
+            files.add(traceFile);
+            return files;
+        }
+        File directory = traceFile.getAbsoluteFile().getParentFile();
+        String prefix = traceFile.getName() + ".";
+        File[] candidates = directory == null ? null : directory.listFiles();
+        if (candidates != null) {
+            for (File candidate : candidates) {
+                String name = candidate.getName();
+                if (candidate.isFile() && name.startsWith(prefix) && name.length() > prefix.length()
+                        && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                    files.add(candidate);
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            throw new FileNotFoundException("No trace file or segments found: " + traceFile);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    private static void readSegments(File file, List<Segment> segments) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            int first = in.read();
+            if (first == -1) {
+                // A recorder that was killed before writing its header leaves an empty file
+                return;
+            }
+            Segment segment = null;
+            int opCode = first;
+            while (opCode != -1) {
+                try {
+                    if (opCode == MAGIC[0]) {
+                        // Op codes are small, so the magic marks the start of the next segment
+                        segment = readHeader(in, file);
+                        segments.add(segment);
+                    } else if (segment == null) {
+                        throw new IOException("Not a trace file: " + file);
+                    } else {
+                        int flags = in.readUnsignedByte();
+                        byte[] pathBytes = new byte[WritableUtils.readVInt(in)];
+                        in.readFully(pathBytes);
+                        segment.records.add(new Record(Op.fromCode(opCode), (flags & 1) != 0, Result.fromCode(flags >> 1),
+                                new String(pathBytes, StandardCharsets.UTF_8),
+                                WritableUtils.readVLong(in), WritableUtils.readVLong(in), WritableUtils.readVLong(in),
+                                WritableUtils.readVLong(in), WritableUtils.readVLong(in)));
+                    }
+                } catch (EOFException e) {
+                    // A recorder that was killed may leave a partial last record
+                    System.out.println("Ignoring truncated last record in trace: " + file);
+                    break;
+                }
+                opCode = in.read();
+            }
+        }
+    }
+
+    private static Segment readHeader(DataInputStream in, File file) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        magic[0] = MAGIC[0];
+        in.readFully(magic, 1, MAGIC.length - 1);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a trace file: " + file);
+        }
+        int version = WritableUtils.readVInt(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version " + version + ": " + file);
+        }
+        return new Segment(in.readLong());
+    }
+
+    private static class Segment {
+        private final long startMillis;
+        private final List<Record> records = new ArrayList<>();
+
+        Segment(long startMillis) {
+            this.startMillis = startMillis;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.apache.hadoop.io.compress.SplitCompressionInputStream;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes a splittable file (bzip2 stream or SequenceFile container) by cutting it into
+ * byte ranges and decoding each range on its own thread, the same way MapReduce input
+ * formats assign blocks and records to splits. Decoded splits are emitted in file order.
+ *
+ * <p>The split being emitted writes straight to the destination. Splits that finish decoding
+ * ahead of it keep up to {@link #SPILL_THRESHOLD} bytes in memory and spill the rest to a
+ * local temporary file, so memory use is bounded by the window size regardless of how much
+ * a split decompresses to.
+ */
+class ParallelSplitDecoder {
+    private static final long MIN_SPLIT_SIZE = 1024 * 1024;
+    private static final int SPILL_THRESHOLD = 4 * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final byte[] SEQUENCE_FILE_MAGIC = {'S', 'E', 'Q'};
+
+    private final FileSystem fileSystem;
+    private final Configuration conf;
+    private final long splitSize;
+
+    /**
+     * @param fileSystem file system holding the files to decode
+     * @param splitSize bytes per split, or 0 to derive it from the block size and thread count
+     */
+    ParallelSplitDecoder(FileSystem fileSystem, long splitSize) {
+        this.fileSystem = fileSystem;
+        this.conf = fileSystem.getConf();
+        this.splitSize = splitSize;
+    }
+
+    /**
+     * Checks whether the file is a SequenceFile container by looking at its magic header
+     *
+     * @param path the file to check
+     * @return true if the file starts with the SequenceFile magic bytes
+     * @throws IOException if the file cannot be read
+     */
+    boolean isSequenceFile(Path path) throws IOException {
+        byte[] header = new byte[SEQUENCE_FILE_MAGIC.length];
+        try (FSDataInputStream in = fileSystem.open(path)) {
+            in.readFully(0, header);
+        } catch (EOFException e) {
+            return false;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (header[i] != SEQUENCE_FILE_MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a file compressed with a splittable codec using several threads
+     *
+     * @param path the file to decode
+     * @param codec the codec the file is compressed with
+     * @param threadCount number of splits decoded concurrently
+     * @param out destination for decoded bytes in file order, or null to only count them
+     * @return number of decoded bytes
+     * @throws IOException if any split fails to decode
+     */
+    long decodeSplittable(Path path, SplittableCompressionCodec codec, int threadCount, OutputStream out)
+            throws IOException {
+        return decodeInParallel(path, threadCount, out, (start, end, sink) -> decodeCodecSplit(path, codec, start, end, sink));
+    }
+
+    /**
+     * Decodes the records of a SequenceFile using several threads, writing each record as
+     * "key TAB value" text like {@code hadoop fs -text}
+     *
+     * @param path the SequenceFile to decode
+     * @param threadCount number of splits decoded concurrently
+     * @param out destination for decoded records in file order, or null to only count them
+     * @return number of decoded bytes
+     * @throws IOException if any split fails to decode
+     */
+    long decodeSequenceFile(Path path, int threadCount, OutputStream out) throws IOException {
+        return decodeInParallel(path, threadCount, out, (start, end, sink) -> decodeSequenceFileSplit(path, start, end, sink));
+    }
+
+    private interface SplitTask {
+        long decode(long start, long end, OutputStream sink) throws IOException;
+    }
+
+    private static class PendingSplit {
+        final Future<Long> decoded;
+        final SplitOutput output;
+
+        PendingSplit(Future<Long> decoded, SplitOutput output) {
+            this.decoded = decoded;
+            this.output = output;
+        }
+    }
+
+    private long decodeInParallel(Path path, int threadCount, OutputStream out, SplitTask task) throws IOException {
+        FileStatus status = fileSystem.getFileStatus(path);
+        long length = status.getLen();
+        long splitSize = this.splitSize > 0 ? this.splitSize
+                : computeSplitSize(length, status.getBlockSize(), threadCount);
+        int splitCount = (int) Math.max(1, (length + splitSize - 1) / splitSize);
+        System.out.println("Decoding " + path + " in " + splitCount + " splits of " + splitSize
+                + " bytes using " + threadCount + " threads");
+
+        // Keep a bounded window of splits in flight so buffered output stays proportional to the thread count
+        int window = threadCount * 2;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        Deque<PendingSplit> pending = new ArrayDeque<>();
+        PendingSplit head = null;
+        long totalBytes = 0;
+        try {
+            int nextSplit = 0;
+            while (nextSplit < splitCount || !pending.isEmpty()) {
+                while (nextSplit < splitCount && pending.size() < window) {
+                    long start = nextSplit * splitSize;
+                    long end = Math.min(length, start + splitSize);
+                    // Count-only mode decodes without buffering anything
+                    SplitOutput output = out != null ? new SplitOutput() : null;
+                    pending.add(new PendingSplit(executor.submit(() -> task.decode(start, end, output)), output));
+                    nextSplit++;
+                }
+                head = pending.poll();
+                if (head.output != null) {
+                    head.output.emitTo(out);
+                }
+                totalBytes += awaitSplit(head.decoded);
+                head = null;
+            }
+        } finally {
+            executor.shutdownNow();
+            if (head != null && head.output != null) {
+                head.output.discard();
+            }
+            for (PendingSplit split : pending) {
+                if (split.output != null) {
+                    split.output.discard();
+                }
+            }
+        }
+        return totalBytes;
+    }
+
+    private static long computeSplitSize(long length, long blockSize, int threadCount) {
+        long perThread = (length + threadCount - 1) / Math.max(1, threadCount);
+        return Math.max(MIN_SPLIT_SIZE, Math.min(blockSize, perThread));
+    }
+
+    private static long awaitSplit(Future<Long> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for split decoding", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Split decoding failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Decodes the compressed blocks whose start position lies in (start, end], or [0, end] for
+     * the first split. Block boundaries are found by watching the position advertised by the
+     * codec stream in BYBLOCK mode, so adjacent splits never decode the same block twice.
+     */
+    private long decodeCodecSplit(Path path, SplittableCompressionCodec codec, long start, long end,
+                                  OutputStream sink) throws IOException {
+        Decompressor decompressor = CodecPool.getDecompressor(codec);
+        FSDataInputStream rawIn = fileSystem.open(path);
+        long decoded = 0;
+        try (SplitCompressionInputStream in = codec.createInputStream(rawIn, decompressor, start, end,
+                SplittableCompressionCodec.READ_MODE.BYBLOCK)) {
+            byte[] buffer = new byte[64 * 1024];
+            long blockPosition = in.getPos();
+            boolean owned = start == 0 || blockPosition > start;
+            if (blockPosition > end) {
+                return 0;
+            }
+            int bytesRead;
+            while ((bytesRead = in.read(buffer, 0, buffer.length)) != -1) {
+                long position = in.getPos();
+                if (position != blockPosition) {
+                    // The bytes just returned belong to the block that starts at the new position
+                    if (position > end) {
+                        break;
+                    }
+                    blockPosition = position;
+                    owned = start == 0 || blockPosition > start;
+                }
+                if (owned && bytesRead > 0) {
+                    if (sink != null) {
+                        sink.write(buffer, 0, bytesRead);
+                    }
+                    decoded += bytesRead;
+                }
+            }
+        } finally {
+            CodecPool.returnDecompressor(decompressor);
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes the records of a SequenceFile split, using the same sync-marker rules as
+     * SequenceFileRecordReader: start at the first sync point after the split start and stop
+     * at the first sync point at or after the split end.
+     */
+    private long decodeSequenceFileSplit(Path path, long start, long end, OutputStream sink) throws IOException {
+        long decoded = 0;
+        try (SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path))) {
+            Object key = ReflectionUtils.newInstance(reader.getKeyClass(), conf);
+            Object value = ReflectionUtils.newInstance(reader.getValueClass(), conf);
+            if (start > reader.getPosition()) {
+                reader.sync(start);
+            }
+            boolean more = start < end;
+            while (more) {
+                long position = reader.getPosition();
+                key = reader.next(key);
+                if (key == null || (position >= end && reader.syncSeen())) {
+                    break;
+                }
+                value = reader.getCurrentValue(value);
+                byte[] record = (key + "\t" + value + "\n").getBytes(StandardCharsets.UTF_8);
+                if (sink != null) {
+                    sink.write(record);
+                }
+                decoded += record.length;
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Output of one split. Buffers in memory, then in a temporary file, until the split becomes
+     * the one being emitted; from then on writes go straight to the destination.
+     */
+    private static class SplitOutput extends OutputStream {
+        private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private File spillFile;
+        private OutputStream spill;
+        private OutputStream direct;
+        private boolean discarded;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (discarded) {
+                throw new IOException("Split output discarded");
+            }
+            if (direct != null) {
+                direct.write(b, off, len);
+            } else if (spill == null && memory.size() + len <= SPILL_THRESHOLD) {
+                memory.write(b, off, len);
+            } else {
+                if (spill == null) {
+                    spillFile = File.createTempFile("split-", ".spill");
+                    spill = new BufferedOutputStream(new FileOutputStream(spillFile), COPY_BUFFER_SIZE);
+                    memory.writeTo(spill);
+                    memory = null;
+                }
+                spill.write(b, off, len);
+            }
+        }
+
+        /**
+         * Writes everything buffered so far to the destination and sends later writes straight to it
+         */
+        synchronized void emitTo(OutputStream destination) throws IOException {
+            if (spill != null) {
+                spill.close();
+                spill = null;
+                try (InputStream in = new FileInputStream(spillFile)) {
+                    byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                    int bytesRead;
+                    while ((bytesRead = in.read(buffer)) != -1) {
+                        destination.write(buffer, 0, bytesRead);
+                    }
+                } finally {
+                    deleteSpillFile();
+                }
+            } else {
+                memory.writeTo(destination);
+            }
+            memory = null;
+            direct = destination;
+        }
+
+        synchronized void discard() {
+            discarded = true;
+            memory = null;
+            if (spill != null) {
+                try {
+                    spill.close();
+                } catch (IOException e) {
+                    // Only cleaning up
+                }
+                spill = null;
+            }
+            deleteSpillFile();
+        }
+
+        private void deleteSpillFile() {
+            if (spillFile != null && !spillFile.delete()) {
+                spillFile.deleteOnExit();
+            }
+            spillFile = null;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (spill != null) {
+                spill.flush();
+            }
+        }
+    }
+}
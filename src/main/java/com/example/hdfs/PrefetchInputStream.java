@@ -0,0 +1,170 @@
+package com.example.hdfs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Input stream that reads its source on a background thread, so that network reads
+ * overlap with whatever the consumer does with the bytes (e.g. decompression)
+ */
+class PrefetchInputStream extends InputStream {
+    private static final byte[] END_OF_STREAM = new byte[0];
+    private static final long POST_RETRY_MS = 100;
+    private static final long CLOSE_TIMEOUT_MS = 10000;
+
+    private final InputStream source;
+    private final BlockingQueue<byte[]> chunks;
+    private final Thread fetcher;
+    private final AtomicLong bytesFetched = new AtomicLong();
+    private volatile IOException failure;
+
+    private byte[] current;
+    private int position;
+    private boolean endOfStream;
+    private volatile boolean closed;
+
+    /**
+     * Starts prefetching from the given source
+     *
+     * @param source the stream to read in the background; closed when this stream is closed
+     * @param chunkSize maximum size of a single prefetched chunk
+     * @param queueDepth number of chunks that may be buffered ahead of the consumer
+     * @param name name of the background thread
+     */
+    PrefetchInputStream(InputStream source, int chunkSize, int queueDepth, String name) {
+        this.source = source;
+        this.chunks = new ArrayBlockingQueue<>(queueDepth);
+        this.fetcher = new Thread(() -> fetch(chunkSize), name);
+        this.fetcher.setDaemon(true);
+        this.fetcher.start();
+    }
+
+    private void fetch(int chunkSize) {
+        try {
+            byte[] buffer = new byte[chunkSize];
+            int bytesRead;
+            while ((bytesRead = source.read(buffer, 0, chunkSize)) != -1) {
+                if (bytesRead > 0) {
+                    bytesFetched.addAndGet(bytesRead);
+                    if (!post(Arrays.copyOf(buffer, bytesRead))) {
+                        return;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // Consumer closed the stream
+            return;
+        }
+        try {
+            post(END_OF_STREAM);
+        } catch (InterruptedException e) {
+            // Consumer closed the stream
+        }
+    }
+
+    /**
+     * Queues a chunk for the consumer. Does not rely on the interrupt from close() alone, since
+     * a source read may swallow it (e.g. as an InterruptedIOException) and leave nobody to drain
+     * a full queue.
+     *
+     * @param chunk the chunk to queue
+     * @return false if the consumer closed the stream before the chunk could be queued
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    private boolean post(byte[] chunk) throws InterruptedException {
+        while (!chunks.offer(chunk, POST_RETRY_MS, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of bytes read from the source so far
+     */
+    long getBytesFetched() {
+        return bytesFetched.get();
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (!endOfStream && (current == null || position == current.length)) {
+            try {
+                current = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for prefetched data");
+            }
+            position = 0;
+            if (current == END_OF_STREAM) {
+                endOfStream = true;
+            }
+        }
+        if (endOfStream && failure != null) {
+            throw new IOException("Prefetch from source failed: " + failure.getMessage(), failure);
+        }
+        return !endOfStream;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if (closed || current == null) {
+            return 0;
+        }
+        return current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fetcher.interrupt();
+        chunks.clear();
+        try {
+            // A fetcher stuck in a source read is a daemon thread; closing the source below releases it
+            fetcher.join(CLOSE_TIMEOUT_MS);
+            if (fetcher.isAlive()) {
+                System.err.println("Prefetch thread " + fetcher.getName() + " did not stop within "
+                        + CLOSE_TIMEOUT_MS + " ms, closing its source anyway");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+}
@@ -0,0 +1,550 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A directory of block-sized container files that each hold many small payloads.
+ *
+ * <p>Container layout: a 4-byte header magic, the payloads back to back, a sorted index and a
+ * fixed-size trailer. The index stores one record per entry with its name prefix-compressed
+ * against the previous name, followed by the payload offset and length as variable-length
+ * integers. A length of -1 marks the entry as deleted. The trailer holds the index offset,
+ * the entry count and the trailer magic.
+ *
+ * <p>Containers are numbered; when the same name appears in several containers the one with the
+ * highest number wins, so appending and deleting never rewrite existing containers. Compaction
+ * rewrites the live entries into fresh containers and removes the old ones.
+ *
+ * <p>A container is written under a hidden temporary name and renamed once its trailer is
+ * written, so an interrupted writer never leaves a container that readers would pick up.
+ */
+public class SmallFilePack implements Closeable {
+    private static final byte[] HEADER_MAGIC = {'S', 'P', 'K', '1'};
+    private static final byte[] TRAILER_MAGIC = {'S', 'P', 'K', 'I'};
+    private static final int TRAILER_LENGTH = 8 + 4 + 4;
+    private static final int TAIL_READ_SIZE = 64 * 1024;
+    private static final long DELETED = -1;
+    private static final String CONTAINER_PREFIX = "pack-";
+    private static final String CONTAINER_SUFFIX = ".spk";
+    private static final String TEMPORARY_PREFIX = ".";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final Pattern CONTAINER_NAME = Pattern.compile("pack-(\\d+)\\.spk");
+
+    /**
+     * Location of a single payload inside a container
+     */
+    public static class Entry {
+        private final String name;
+        private final Path container;
+        private final long offset;
+        private final long length;
+
+        Entry(String name, Path container, long offset, long length) {
+            this.name = name;
+            this.container = container;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Path getContainer() {
+            return container;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        boolean isDeleted() {
+            return length == DELETED;
+        }
+    }
+
+    /**
+     * Copies entries of a pack into a writer, in the given order
+     */
+    public interface EntryCopier {
+        /**
+         * @param pack the pack to read payloads from
+         * @param entries the entries to copy, sorted by name
+         * @param writer the writer to add the payloads to
+         * @throws IOException if a payload cannot be read or written
+         */
+        void copy(SmallFilePack pack, List<Entry> entries, Writer writer) throws IOException;
+    }
+
+    private final FileSystem fileSystem;
+    private final Path packDir;
+    private final TreeMap<String, Entry> index;
+    private final Map<Path, FSDataInputStream> openContainers = new HashMap<>();
+
+    private SmallFilePack(FileSystem fileSystem, Path packDir, TreeMap<String, Entry> index) {
+        this.fileSystem = fileSystem;
+        this.packDir = packDir;
+        this.index = index;
+    }
+
+    /**
+     * Opens a pack directory by reading the index of every container once
+     *
+     * @param fileSystem file system holding the pack
+     * @param packDir the pack directory
+     * @return the opened pack
+     * @throws IOException if a container cannot be read or is corrupt
+     */
+    public static SmallFilePack open(FileSystem fileSystem, Path packDir) throws IOException {
+        TreeMap<String, Entry> index = new TreeMap<>();
+        for (Path container : listContainers(fileSystem, packDir)) {
+            for (Entry entry : readIndex(fileSystem, container)) {
+                if (entry.isDeleted()) {
+                    index.remove(entry.getName());
+                } else {
+                    index.put(entry.getName(), entry);
+                }
+            }
+        }
+        return new SmallFilePack(fileSystem, packDir, index);
+    }
+
+    /**
+     * @return the live entries of the pack, sorted by name
+     */
+    public List<Entry> entries() {
+        return new ArrayList<>(index.values());
+    }
+
+    /**
+     * Looks up an entry by name
+     *
+     * @param name the entry name
+     * @return the entry, or null if the pack does not contain it
+     */
+    public Entry getEntry(String name) {
+        return index.get(name);
+    }
+
+    /**
+     * Reads a payload with a single positional read. Safe to call from several threads.
+     *
+     * @param name the entry name
+     * @return the payload bytes
+     * @throws IOException if the entry does not exist or cannot be read
+     */
+    public byte[] read(String name) throws IOException {
+        Entry entry = index.get(name);
+        if (entry == null) {
+            throw new FileNotFoundException("Entry not found in pack " + packDir + ": " + name);
+        }
+        return read(entry);
+    }
+
+    /**
+     * Reads the payload of an entry with a single positional read. Safe to call from several threads.
+     *
+     * @param entry the entry to read
+     * @return the payload bytes
+     * @throws IOException if the entry cannot be read
+     */
+    public byte[] read(Entry entry) throws IOException {
+        byte[] payload = new byte[(int) entry.getLength()];
+        containerStream(entry.getContainer()).readFully(entry.getOffset(), payload);
+        return payload;
+    }
+
+    private synchronized FSDataInputStream containerStream(Path container) throws IOException {
+        FSDataInputStream in = openContainers.get(container);
+        if (in == null) {
+            in = fileSystem.open(container);
+            openContainers.put(container, in);
+        }
+        return in;
+    }
+
+    /**
+     * Closes all container streams opened by {@link #read(String)}
+     *
+     * @throws IOException if a stream fails to close
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        IOException failure = null;
+        for (FSDataInputStream in : openContainers.values()) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        openContainers.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Rewrites the live entries of a pack into fresh containers and removes the old containers,
+     * dropping deleted and superseded payloads. Old containers are removed only after all new
+     * containers have been renamed into place, so an interrupted compaction leaves a readable pack.
+     *
+     * @param fileSystem file system holding the pack
+     * @param packDir the pack directory
+     * @param targetContainerSize size at which a new container is started
+     * @return number of live entries kept
+     * @throws IOException if the pack cannot be read or rewritten
+     */
+    public static int compact(FileSystem fileSystem, Path packDir, long targetContainerSize) throws IOException {
+        return compact(fileSystem, packDir, targetContainerSize, (pack, entries, writer) -> {
+            for (Entry entry : entries) {
+                writer.add(entry.getName(), pack.read(entry));
+            }
+        });
+    }
+
+    /**
+     * Compacts a pack like {@link #compact(FileSystem, Path, long)}, copying the live entries
+     * with the given copier, e.g. one that reads payloads concurrently
+     *
+     * @param fileSystem file system holding the pack
+     * @param packDir the pack directory
+     * @param targetContainerSize size at which a new container is started
+     * @param copier copies the live entries into the new containers
+     * @return number of live entries kept
+     * @throws IOException if the pack cannot be read or rewritten
+     */
+    public static int compact(FileSystem fileSystem, Path packDir, long targetContainerSize, EntryCopier copier)
+            throws IOException {
+        List<Path> oldContainers = listContainers(fileSystem, packDir);
+        List<Entry> live;
+        try (SmallFilePack pack = open(fileSystem, packDir);
+             Writer writer = new Writer(fileSystem, packDir, targetContainerSize)) {
+            live = pack.entries();
+            try {
+                copier.copy(pack, live, writer);
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+        }
+        // Oldest first: deletion markers always live in a newer container than the payload they
+        // delete, so a partial cleanup never brings a deleted entry back
+        for (Path container : oldContainers) {
+            fileSystem.delete(container, false);
+        }
+        return live.size();
+    }
+
+    /**
+     * Lists the containers of a pack directory in ascending container number
+     *
+     * @param fileSystem file system holding the pack
+     * @param packDir the pack directory
+     * @return container paths, oldest first; empty if the directory does not exist
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> listContainers(FileSystem fileSystem, Path packDir) throws IOException {
+        List<Path> containers = new ArrayList<>();
+        if (!fileSystem.exists(packDir)) {
+            return containers;
+        }
+        for (FileStatus status : fileSystem.listStatus(packDir)) {
+            if (status.isFile() && CONTAINER_NAME.matcher(status.getPath().getName()).matches()) {
+                containers.add(status.getPath());
+            }
+        }
+        containers.sort((a, b) -> Long.compare(containerNumber(a), containerNumber(b)));
+        return containers;
+    }
+
+    private static long containerNumber(Path container) {
+        Matcher matcher = CONTAINER_NAME.matcher(container.getName());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    private static List<Entry> readIndex(FileSystem fileSystem, Path container) throws IOException {
+        long fileLength = fileSystem.getFileStatus(container).getLen();
+        if (fileLength < HEADER_MAGIC.length + TRAILER_LENGTH) {
+            throw new IOException("Pack container too short: " + container);
+        }
+        try (FSDataInputStream in = fileSystem.open(container)) {
+            // One positional read of the tail usually covers both the trailer and the index
+            int tailLength = (int) Math.min(fileLength, TAIL_READ_SIZE);
+            byte[] tail = new byte[tailLength];
+            in.readFully(fileLength - tailLength, tail);
+
+            DataInputStream trailer = new DataInputStream(
+                    new ByteArrayInputStream(tail, tailLength - TRAILER_LENGTH, TRAILER_LENGTH));
+            long indexOffset = trailer.readLong();
+            int entryCount = trailer.readInt();
+            byte[] magic = new byte[TRAILER_MAGIC.length];
+            trailer.readFully(magic);
+            if (!Arrays.equals(magic, TRAILER_MAGIC)) {
+                throw new IOException("Not a pack container (bad trailer magic): " + container);
+            }
+
+            long indexEnd = fileLength - TRAILER_LENGTH;
+            if (indexOffset < HEADER_MAGIC.length || indexOffset > indexEnd) {
+                throw new IOException("Corrupt pack container index offset " + indexOffset + ": " + container);
+            }
+            int indexLength = (int) (indexEnd - indexOffset);
+            byte[] indexBytes;
+            int indexStart;
+            if (indexOffset >= fileLength - tailLength) {
+                indexBytes = tail;
+                indexStart = (int) (indexOffset - (fileLength - tailLength));
+            } else {
+                indexBytes = new byte[indexLength];
+                in.readFully(indexOffset, indexBytes);
+                indexStart = 0;
+            }
+
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(indexBytes, indexStart, indexLength));
+            List<Entry> entries = new ArrayList<>(entryCount);
+            byte[] previous = new byte[0];
+            for (int i = 0; i < entryCount; i++) {
+                int shared = WritableUtils.readVInt(data);
+                int suffixLength = WritableUtils.readVInt(data);
+                byte[] name = Arrays.copyOf(previous, shared + suffixLength);
+                data.readFully(name, shared, suffixLength);
+                long offset = WritableUtils.readVLong(data);
+                long length = WritableUtils.readVLong(data);
+                entries.add(new Entry(new String(name, StandardCharsets.UTF_8), container, offset, length));
+                previous = name;
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Appends payloads to a pack directory as new containers, starting a new container whenever
+     * the current one, including its index and trailer, would grow past the target size
+     */
+    public static class Writer implements Closeable {
+        private final FileSystem fileSystem;
+        private final Path packDir;
+        private final long targetContainerSize;
+        private final List<Path> written = new ArrayList<>();
+        private long nextContainerNumber;
+        private FSDataOutputStream out;
+        private Path currentContainer;
+        private Path currentTemporary;
+        private List<Entry> currentEntries;
+        private long currentIndexSize;
+        private boolean failed;
+
+        /**
+         * @param fileSystem file system holding the pack
+         * @param packDir the pack directory; created if missing
+         * @param targetContainerSize size at which a new container is started, usually the block size
+         * @throws IOException if the pack directory cannot be listed or created
+         */
+        public Writer(FileSystem fileSystem, Path packDir, long targetContainerSize) throws IOException {
+            this.fileSystem = fileSystem;
+            this.packDir = packDir;
+            this.targetContainerSize = targetContainerSize;
+            fileSystem.mkdirs(packDir);
+            List<Path> existing = listContainers(fileSystem, packDir);
+            this.nextContainerNumber = existing.isEmpty() ? 0 : containerNumber(existing.get(existing.size() - 1)) + 1;
+        }
+
+        /**
+         * Appends a payload under the given name
+         *
+         * @param name the entry name
+         * @param payload the payload bytes
+         * @throws IOException if the payload cannot be written
+         */
+        public void add(String name, byte[] payload) throws IOException {
+            try {
+                prepareContainer(name, payload.length);
+                currentEntries.add(new Entry(name, currentContainer, out.getPos(), payload.length));
+                out.write(payload);
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Records that an entry has been deleted; the payload is dropped at the next compaction
+         *
+         * @param name the entry name
+         * @throws IOException if the deletion marker cannot be written
+         */
+        public void delete(String name) throws IOException {
+            try {
+                prepareContainer(name, 0);
+                currentEntries.add(new Entry(name, currentContainer, 0, DELETED));
+            } catch (IOException | RuntimeException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Marks the write as failed, so {@link #close()} discards the current container instead of
+         * publishing it. Adds and deletes that throw do this themselves; callers use it when their
+         * own work between adds failed.
+         */
+        public void abort() {
+            failed = true;
+        }
+
+        /**
+         * @return the containers written so far
+         */
+        public List<Path> getWrittenContainers() {
+            return Collections.unmodifiableList(written);
+        }
+
+        /**
+         * Makes sure the current container has room for one more entry and its index record
+         */
+        private void prepareContainer(String name, long payloadLength) throws IOException {
+            if (out != null) {
+                long indexSize = currentIndexSize + indexRecordSize(name, out.getPos(), payloadLength);
+                if (out.getPos() + payloadLength + indexSize + TRAILER_LENGTH > targetContainerSize) {
+                    finishContainer();
+                }
+            }
+            if (out == null) {
+                startContainer();
+            }
+            currentIndexSize += indexRecordSize(name, out.getPos(), payloadLength);
+        }
+
+        /**
+         * Upper bound of the encoded index record of an entry; prefix compression only makes it smaller
+         */
+        private static long indexRecordSize(String name, long offset, long length) {
+            int nameLength = name.getBytes(StandardCharsets.UTF_8).length;
+            return WritableUtils.getVIntSize(0) + WritableUtils.getVIntSize(nameLength) + nameLength
+                    + WritableUtils.getVIntSize(offset) + WritableUtils.getVIntSize(length);
+        }
+
+        private void startContainer() throws IOException {
+            String name = String.format("%s%05d%s", CONTAINER_PREFIX, nextContainerNumber++, CONTAINER_SUFFIX);
+            currentContainer = new Path(packDir, name);
+            currentTemporary = new Path(packDir, TEMPORARY_PREFIX + name + TEMPORARY_SUFFIX);
+            if (fileSystem.exists(currentContainer)) {
+                throw new IOException("Pack container already exists: " + currentContainer);
+            }
+            // Overwrites a temporary file left behind by an interrupted writer
+            out = fileSystem.create(currentTemporary, true);
+            out.write(HEADER_MAGIC);
+            currentEntries = new ArrayList<>();
+            currentIndexSize = 0;
+        }
+
+        private void finishContainer() throws IOException {
+            currentEntries.sort((a, b) -> a.getName().compareTo(b.getName()));
+
+            ByteArrayOutputStream indexBuffer = new ByteArrayOutputStream();
+            DataOutputStream indexOut = new DataOutputStream(indexBuffer);
+            byte[] previous = new byte[0];
+            for (Entry entry : currentEntries) {
+                byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                int limit = Math.min(previous.length, name.length);
+                while (shared < limit && previous[shared] == name[shared]) {
+                    shared++;
+                }
+                WritableUtils.writeVInt(indexOut, shared);
+                WritableUtils.writeVInt(indexOut, name.length - shared);
+                indexOut.write(name, shared, name.length - shared);
+                WritableUtils.writeVLong(indexOut, entry.getOffset());
+                WritableUtils.writeVLong(indexOut, entry.getLength());
+                previous = name;
+            }
+            indexOut.flush();
+
+            long indexOffset = out.getPos();
+            indexBuffer.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeInt(currentEntries.size());
+            out.write(TRAILER_MAGIC);
+            out.close();
+            out = null;
+
+            if (!fileSystem.rename(currentTemporary, currentContainer)) {
+                throw new IOException("Failed to rename " + currentTemporary + " to " + currentContainer);
+            }
+            written.add(currentContainer);
+            currentContainer = null;
+            currentTemporary = null;
+            currentEntries = null;
+        }
+
+        private void discardContainer() throws IOException {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } finally {
+                out = null;
+                fileSystem.delete(currentTemporary, false);
+                currentContainer = null;
+                currentTemporary = null;
+                currentEntries = null;
+            }
+        }
+
+        /**
+         * Writes the index of the last container and publishes it. After a failed add, delete or
+         * {@link #abort()} the last container is deleted instead, since its entries may be
+         * incomplete; containers published before the failure are kept.
+         *
+         * @throws IOException if the container cannot be finished or discarded
+         */
+        @Override
+        public void close() throws IOException {
+            if (currentTemporary == null) {
+                return;
+            }
+            if (!failed) {
+                try {
+                    finishContainer();
+                    return;
+                } catch (IOException | RuntimeException e) {
+                    failed = true;
+                    try {
+                        discardContainer();
+                    } catch (IOException discardFailure) {
+                        e.addSuppressed(discardFailure);
+                    }
+                    throw e;
+                }
+            }
+            discardContainer();
+        }
+    }
+}
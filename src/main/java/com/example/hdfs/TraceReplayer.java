@@ -0,0 +1,277 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Re-issues the operations of an {@link OperationTrace} against a file system and compares the
+ * replayed latency distribution with the recorded one.
+ *
+ * <p>Paths are replayed without their scheme and authority, so a trace recorded on one cluster
+ * can be replayed against another, e.g. a local MiniDFSCluster. Writes use synthetic content of
+ * the recorded size. Records of the same path are replayed by the same worker in recorded order,
+ * so a read or delete never overtakes the write it depends on.
+ */
+class TraceReplayer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileSystem fileSystem;
+
+    TraceReplayer(FileSystem fileSystem) {
+        this.fileSystem = fileSystem;
+    }
+
+    /**
+     * Creates the files and directories that the trace reads or lists but that do not exist on
+     * the target file system, so the trace can be replayed against an empty cluster. Files the
+     * trace writes before reading them are left to the replay.
+     *
+     * @param records the trace records
+     * @return number of paths created
+     * @throws IOException if a path cannot be created
+     */
+    int prepare(List<OperationTrace.Record> records) throws IOException {
+        Map<Path, Long> files = new HashMap<>();
+        List<Path> directories = new ArrayList<>();
+        Set<Path> written = new HashSet<>();
+        for (OperationTrace.Record record : records) {
+            Path path = replayPath(record);
+            if (record.getOp() == OperationTrace.Op.WRITE) {
+                written.add(path);
+            }
+            if (record.getResult() != OperationTrace.Result.OK) {
+                continue;
+            }
+            switch (record.getOp()) {
+                case READ:
+                case PREAD:
+                    if (written.contains(path)) {
+                        break;
+                    }
+                    long needed = record.getOffset() + Math.max(record.getBytes(), Math.max(record.getLength(), 0));
+                    files.merge(path, needed, Math::max);
+                    break;
+                case LIST:
+                    directories.add(path);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        int created = 0;
+        for (Path directory : directories) {
+            if (!fileSystem.exists(directory) && fileSystem.mkdirs(directory)) {
+                created++;
+            }
+        }
+        for (Map.Entry<Path, Long> file : files.entrySet()) {
+            if (!fileSystem.exists(file.getKey())) {
+                writeSynthetic(file.getKey(), file.getValue(), false);
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Replays the trace
+     *
+     * @param records the trace records, sorted by start time
+     * @param workerCount number of concurrent workers; each path is replayed by one of them
+     * @param speed replay speed relative to the recording (2 = twice as fast), or 0 for as fast as possible
+     * @return the result of each replayed operation, in record order
+     * @throws InterruptedException if interrupted while waiting for workers
+     */
+    OperationTrace.Result[] replay(List<OperationTrace.Record> records, int workerCount, double speed) throws InterruptedException {
+        int count = records.size();
+        long[] replayedNanos = new long[count];
+        long[] lagNanos = new long[count];
+        OperationTrace.Result[] results = new OperationTrace.Result[count];
+        List<List<Integer>> partitions = new ArrayList<>(workerCount);
+        for (int w = 0; w < workerCount; w++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < count; i++) {
+            partitions.get(Math.floorMod(replayPath(records.get(i)).hashCode(), workerCount)).add(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(workerCount);
+        long replayStart = System.nanoTime();
+        for (List<Integer> partition : partitions) {
+            executor.submit(() -> {
+                for (int i : partition) {
+                    OperationTrace.Record record = records.get(i);
+                    long due = speed > 0 ? replayStart + (long) (record.getStartNanos() / speed) : System.nanoTime();
+                    long now;
+                    while ((now = System.nanoTime()) < due) {
+                        LockSupport.parkNanos(due - now);
+                    }
+                    lagNanos[i] = now - due;
+                    long opStart = System.nanoTime();
+                    results[i] = execute(record);
+                    replayedNanos[i] = System.nanoTime() - opStart;
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStart);
+
+        long recordedEndNanos = 0;
+        for (OperationTrace.Record record : records) {
+            recordedEndNanos = Math.max(recordedEndNanos, record.getStartNanos() + record.getDurationNanos());
+        }
+        long recordedSpanMs = TimeUnit.NANOSECONDS.toMillis(recordedEndNanos);
+        System.out.println("Replayed " + count + " operations in " + elapsedMs + " ms (recorded span "
+                + recordedSpanMs + " ms) with " + workerCount + " workers");
+        report(records, replayedNanos, lagNanos, results);
+        return results;
+    }
+
+    private OperationTrace.Result execute(OperationTrace.Record record) {
+        Path path = replayPath(record);
+        try {
+            switch (record.getOp()) {
+                case LIST:
+                    fileSystem.listStatus(path);
+                    break;
+                case READ:
+                    try (FSDataInputStream in = fileSystem.open(path)) {
+                        if (record.getOffset() > 0) {
+                            in.seek(record.getOffset());
+                        }
+                        byte[] buffer = new byte[BUFFER_SIZE];
+                        long remaining = record.getLength() < 0 ? Long.MAX_VALUE : record.getLength();
+                        int bytesRead;
+                        while (remaining > 0 && (bytesRead = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                            remaining -= bytesRead;
+                        }
+                    }
+                    break;
+                case PREAD:
+                    try (FSDataInputStream in = fileSystem.open(path)) {
+                        in.readFully(record.getOffset(), new byte[(int) record.getLength()]);
+                    }
+                    break;
+                case WRITE:
+                    writeSynthetic(path, record.getBytes(), record.getFlag());
+                    break;
+                case MKDIR:
+                    fileSystem.mkdirs(path);
+                    break;
+                case DELETE:
+                    fileSystem.delete(path, record.getFlag());
+                    break;
+                case EXISTS:
+                    fileSystem.exists(path);
+                    break;
+                default:
+                    break;
+            }
+            return OperationTrace.Result.OK;
+        } catch (FileNotFoundException e) {
+            return OperationTrace.Result.NOT_FOUND;
+        } catch (IOException | RuntimeException e) {
+            return OperationTrace.Result.ERROR;
+        }
+    }
+
+    private void writeSynthetic(Path path, long length, boolean overwrite) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        Arrays.fill(buffer, (byte) 'x');
+        try (FSDataOutputStream out = fileSystem.create(path, overwrite)) {
+            long remaining = length;
+            while (remaining > 0) {
+                int chunk = (int) Math.min(buffer.length, remaining);
+                out.write(buffer, 0, chunk);
+                remaining -= chunk;
+            }
+        }
+    }
+
+    private static Path replayPath(OperationTrace.Record record) {
+        return new Path(new Path(record.getPath()).toUri().getPath());
+    }
+
+    private static void report(List<OperationTrace.Record> records, long[] replayedNanos, long[] lagNanos,
+                               OperationTrace.Result[] results) {
+        Map<OperationTrace.Op, List<Integer>> byOp = new EnumMap<>(OperationTrace.Op.class);
+        for (int i = 0; i < records.size(); i++) {
+            byOp.computeIfAbsent(records.get(i).getOp(), op -> new ArrayList<>()).add(i);
+        }
+
+        System.out.printf("%-8s %-9s %8s %8s %10s %10s %10s %10s %10s%n",
+                "op", "source", "count", "failed", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        List<Integer> all = new ArrayList<>();
+        for (Map.Entry<OperationTrace.Op, List<Integer>> entry : byOp.entrySet()) {
+            printRows(entry.getKey().name(), entry.getValue(), records, replayedNanos, results);
+            all.addAll(entry.getValue());
+        }
+        printRows("ALL", all, records, replayedNanos, results);
+
+        long[] lag = lagNanos.clone();
+        Arrays.sort(lag);
+        System.out.printf("Schedule lag: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                percentile(lag, 0.50) / 1e6, percentile(lag, 0.99) / 1e6, (lag.length > 0 ? lag[lag.length - 1] : 0) / 1e6);
+    }
+
+    private static void printRows(String label, List<Integer> indices, List<OperationTrace.Record> records,
+                                  long[] replayedNanos, OperationTrace.Result[] results) {
+        long[] recorded = new long[indices.size()];
+        long[] replayed = new long[indices.size()];
+        int recordedFailures = 0;
+        int replayedFailures = 0;
+        for (int j = 0; j < indices.size(); j++) {
+            int i = indices.get(j);
+            recorded[j] = records.get(i).getDurationNanos();
+            replayed[j] = replayedNanos[i];
+            if (records.get(i).getResult() != OperationTrace.Result.OK) {
+                recordedFailures++;
+            }
+            if (results[i] != OperationTrace.Result.OK) {
+                replayedFailures++;
+            }
+        }
+        printRow(label, "recorded", recorded, recordedFailures);
+        printRow(label, "replayed", replayed, replayedFailures);
+    }
+
+    private static void printRow(String label, String source, long[] latencies, int failures) {
+        Arrays.sort(latencies);
+        double mean = 0;
+        for (long latency : latencies) {
+            mean += latency;
+        }
+        mean = latencies.length > 0 ? mean / latencies.length : 0;
+        System.out.printf("%-8s %-9s %8d %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n",
+                label, source, latencies.length, failures, mean / 1e6,
+                percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.90) / 1e6,
+                percentile(latencies, 0.99) / 1e6, (latencies.length > 0 ? latencies[latencies.length - 1] : 0) / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
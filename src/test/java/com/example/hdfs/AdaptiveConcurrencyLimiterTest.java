@@ -0,0 +1,153 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.ipc.RetriableException;
+import org.apache.hadoop.ipc.StandbyException;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the limiter with a simulated clock and checks how it moves the limit.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+    private static final long BASE_LATENCY_MS = 10;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+
+    @Test
+    public void doublesPerRoundTripInSlowStartUpToMax() throws Exception {
+        try (AdaptiveConcurrencyLimiter limiter = newLimiter(1, 2, 64)) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = fill(limiter, new ArrayList<>());
+            for (int expected : new int[] {4, 8, 16, 32, 64, 64, 64}) {
+                permits = roundTrip(limiter, permits, BASE_LATENCY_MS);
+                assertEquals(expected, limiter.getLimit());
+            }
+        }
+    }
+
+    @Test
+    public void backsOffOncePerRoundTripWhenLatencyRises() throws Exception {
+        try (AdaptiveConcurrencyLimiter limiter = newLimiter(1, 20, 20)) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = fill(limiter, new ArrayList<>());
+            for (int i = 0; i < 5; i++) {
+                permits = roundTrip(limiter, permits, BASE_LATENCY_MS);
+            }
+            assertEquals(20, limiter.getLimit());
+
+            // Every completion in the slow round sees congestion, but only the first one counts
+            permits = roundTrip(limiter, permits, 10 * BASE_LATENCY_MS);
+            assertEquals(18, limiter.getLimit());
+            // Operations started after the decrease may shrink it again
+            roundTrip(limiter, permits, 10 * BASE_LATENCY_MS);
+            assertEquals(16, limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void halvesOnOverloadAndThenGrowsAdditively() throws Exception {
+        try (AdaptiveConcurrencyLimiter limiter = newLimiter(1, 16, 64)) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = fill(limiter, new ArrayList<>());
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(BASE_LATENCY_MS));
+            for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+                limiter.onFailure(permit, new RetriableException("busy"));
+            }
+            assertEquals(8, limiter.getLimit());
+
+            // Out of slow start: about one more slot per window instead of doubling
+            permits = fill(limiter, new ArrayList<>());
+            permits = roundTrip(limiter, permits, BASE_LATENCY_MS);
+            assertEquals(8, limiter.getLimit());
+            roundTrip(limiter, permits, BASE_LATENCY_MS);
+            assertEquals(9, limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void ignoresFailuresThatAreNotOverload() throws Exception {
+        try (AdaptiveConcurrencyLimiter limiter = newLimiter(1, 16, 64)) {
+            List<AdaptiveConcurrencyLimiter.Permit> permits = fill(limiter, new ArrayList<>());
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(BASE_LATENCY_MS));
+            limiter.onFailure(permits.get(0), new IOException("disk error"));
+            limiter.onFailure(permits.get(1), new StandbyException("standby"));
+            limiter.onFailure(permits.get(2), null);
+            assertEquals(16, limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void clampsToMinAndMax() throws Exception {
+        try (AdaptiveConcurrencyLimiter limiter = newLimiter(4, 100, 16)) {
+            assertEquals(16, limiter.getLimit());
+            for (int expected : new int[] {8, 4, 4, 4}) {
+                AdaptiveConcurrencyLimiter.Permit permit = acquire(limiter);
+                clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(BASE_LATENCY_MS));
+                limiter.onFailure(permit, new SocketTimeoutException("timed out"));
+                assertEquals(expected, limiter.getLimit());
+            }
+        }
+        try (AdaptiveConcurrencyLimiter limiter = newLimiter(4, 1, 16)) {
+            assertEquals(4, limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void classifiesOverloadFailures() {
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(new RetriableException("busy")));
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(new IOException(new SocketTimeoutException("timed out"))));
+        assertTrue(AdaptiveConcurrencyLimiter.isOverload(
+                new RemoteException("org.apache.hadoop.ipc.CallQueueOverflowException", "queue full")));
+        assertFalse(AdaptiveConcurrencyLimiter.isOverload(
+                new RemoteException("org.apache.hadoop.ipc.StandbyException", "standby")));
+        assertFalse(AdaptiveConcurrencyLimiter.isOverload(new IOException("disk error")));
+        assertFalse(AdaptiveConcurrencyLimiter.isOverload(null));
+    }
+
+    private AdaptiveConcurrencyLimiter newLimiter(int min, int initial, int max) {
+        return new AdaptiveConcurrencyLimiter("test", min, initial, max, 1.5, clock::get);
+    }
+
+    /**
+     * Advances the clock by one latency and completes every permit, refilling up to the limit
+     * after each completion; the refilled permits form the next round trip.
+     */
+    private List<AdaptiveConcurrencyLimiter.Permit> roundTrip(AdaptiveConcurrencyLimiter limiter,
+                                                               List<AdaptiveConcurrencyLimiter.Permit> permits,
+                                                               long latencyMs) throws InterruptedException {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        List<AdaptiveConcurrencyLimiter.Permit> next = new ArrayList<>();
+        for (int i = 0; i < permits.size(); i++) {
+            limiter.onSuccess(permits.get(i), 0);
+            int inFlight = permits.size() - i - 1 + next.size();
+            while (inFlight < limiter.getLimit()) {
+                next.add(acquire(limiter));
+                inFlight++;
+            }
+        }
+        return next;
+    }
+
+    private AdaptiveConcurrencyLimiter.Permit acquire(AdaptiveConcurrencyLimiter limiter) throws InterruptedException {
+        // A real clock moves on between a decrease and the next acquire
+        clock.addAndGet(TimeUnit.MICROSECONDS.toNanos(1));
+        return limiter.acquire();
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> fill(AdaptiveConcurrencyLimiter limiter,
+                                                         List<AdaptiveConcurrencyLimiter.Permit> permits)
+            throws InterruptedException {
+        while (permits.size() < limiter.getLimit()) {
+            permits.add(acquire(limiter));
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Serves requests against the local file system through a daemon in this JVM.
+ */
+public class HdfsClientDaemonTest {
+    private static final byte[] TOKEN = "test-token".getBytes(StandardCharsets.US_ASCII);
+
+    private File testDir;
+    private PrintStream originalOut;
+    private PrintStream originalErr;
+    private HdfsClientDaemon daemon;
+    private Thread serveThread;
+    private ExecutorService requests;
+
+    @Before
+    public void setUp() throws Exception {
+        testDir = new File("target/test-data/" + getClass().getSimpleName()).getAbsoluteFile();
+        FileUtil.fullyDelete(testDir);
+        testDir.mkdirs();
+        originalOut = System.out;
+        originalErr = System.err;
+        HdfsClientDaemon.installOutputRouting();
+        daemon = new HdfsClientDaemon(0, TOKEN, 4);
+        serveThread = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "daemon-serve");
+        serveThread.start();
+        requests = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        requests.shutdownNow();
+        if (serveThread.isAlive()) {
+            request("--shutdown");
+            serveThread.join(TimeUnit.SECONDS.toMillis(60));
+        }
+        System.setOut(originalOut);
+        System.setErr(originalErr);
+    }
+
+    @Test
+    public void keepsOutputOfConcurrentRequestsApart() throws Exception {
+        File listed = new File(testDir, "listed");
+        listed.mkdirs();
+        Files.write(new File(listed, "listed-marker.txt").toPath(), "content".getBytes(StandardCharsets.UTF_8));
+        File missing = new File(testDir, "missing-marker.txt");
+
+        // Warm up the shared client, so its setup output cannot reach either request
+        assertEquals(0, request("file:///", "exists", testDir.getPath()).exitCode);
+
+        Future<Response> list = requests.submit(() -> request("file:///", "list", listed.getPath()));
+        Future<Response> read = requests.submit(() -> request("file:///", "read", missing.getPath()));
+        Response listResponse = list.get(60, TimeUnit.SECONDS);
+        Response readResponse = read.get(60, TimeUnit.SECONDS);
+
+        assertEquals(0, listResponse.exitCode);
+        assertTrue(listResponse.stdout, listResponse.stdout.contains("listed-marker.txt"));
+        assertFalse(listResponse.stdout.contains("missing-marker.txt"));
+        assertFalse(listResponse.stderr.contains("missing-marker.txt"));
+
+        assertEquals(1, readResponse.exitCode);
+        assertTrue(readResponse.stderr, readResponse.stderr.contains("missing-marker.txt"));
+        assertFalse(readResponse.stdout.contains("listed-marker.txt"));
+        assertFalse(readResponse.stderr.contains("listed-marker.txt"));
+
+        for (Response response : new Response[]{listResponse, readResponse}) {
+            assertFalse(response.stdout, response.stdout.contains("Configuration properties:"));
+        }
+    }
+
+    @Test
+    public void clientThatStopsReadingDoesNotBlockOtherRequests() throws Exception {
+        File traceFile = new File(testDir, "large.trace");
+        try (OperationTrace.Writer writer = new OperationTrace.Writer(traceFile, System.nanoTime())) {
+            StringBuilder path = new StringBuilder("/data");
+            while (path.length() < 400) {
+                path.append("/long-directory-name");
+            }
+            for (int i = 0; i < 100000; i++) {
+                writer.record(OperationTrace.Op.READ, path + "/" + i, 0, -1, false,
+                        System.nanoTime(), 1000, 1, OperationTrace.Result.OK);
+            }
+        }
+
+        // Requests tens of MB of output and stops reading once it has started, so the request
+        // blocks on a full socket buffer
+        try (Socket stalled = connect("file:///", "showTrace", traceFile.getPath())) {
+            BufferedReader stalledIn = new BufferedReader(new InputStreamReader(stalled.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = stalledIn.readLine()) != null && !line.contains("/long-directory-name")) {
+                // Skip output printed before the records
+            }
+            Thread.sleep(1000);
+            Future<Response> list = requests.submit(() -> request("file:///", "list", testDir.getPath()));
+            Response response = list.get(20, TimeUnit.SECONDS);
+            assertEquals(0, response.exitCode);
+            assertTrue(response.stdout, response.stdout.contains("large.trace"));
+        }
+    }
+
+    private Socket connect(String... args) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+        OutputStream out = socket.getOutputStream();
+        out.write(TOKEN);
+        out.write('\n');
+        writeField(out, testDir.getPath());
+        out.write((args.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        for (String arg : args) {
+            writeField(out, arg);
+        }
+        out.flush();
+        return socket;
+    }
+
+    private static void writeField(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.write((bytes.length + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+    }
+
+    private Response request(String... args) throws IOException {
+        try (Socket socket = connect(args);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            Response response = new Response();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String text = line.length() > 2 ? line.substring(2) : "";
+                switch (line.charAt(0)) {
+                    case 'o':
+                        response.stdoutBuilder.append(text).append('\n');
+                        break;
+                    case 'e':
+                        response.stderrBuilder.append(text).append('\n');
+                        break;
+                    case 'O':
+                        response.stdoutBuilder.append(text);
+                        break;
+                    case 'E':
+                        response.stderrBuilder.append(text);
+                        break;
+                    case 'x':
+                        response.exitCode = Integer.parseInt(text);
+                        break;
+                    default:
+                        throw new IOException("Unexpected response line: " + line);
+                }
+            }
+            return response.done();
+        }
+    }
+
+    private static class Response {
+        private final StringBuilder stdoutBuilder = new StringBuilder();
+        private final StringBuilder stderrBuilder = new StringBuilder();
+        private String stdout;
+        private String stderr;
+        private int exitCode = -1;
+
+        Response done() {
+            stdout = stdoutBuilder.toString();
+            stderr = stderrBuilder.toString();
+            return this;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.fs.FileUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Writes and reads operation traces on the local file system.
+ */
+public class OperationTraceTest {
+    private File testDir;
+
+    @Before
+    public void setUp() {
+        testDir = new File("target/test-data/" + getClass().getSimpleName()).getAbsoluteFile();
+        FileUtil.fullyDelete(testDir);
+        testDir.mkdirs();
+    }
+
+    @Test
+    public void writesRecordsWhileRecording() throws Exception {
+        File traceFile = new File(testDir, "open.trace");
+        try (OperationTrace.Writer writer = new OperationTrace.Writer(traceFile, System.nanoTime())) {
+            record(writer, "/data/a", 10);
+            // Records must reach the file without close(), as a killed recorder never gets there
+            long deadline = System.currentTimeMillis() + 10000;
+            while (OperationTrace.read(traceFile).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            List<OperationTrace.Record> records = OperationTrace.read(traceFile);
+            assertEquals(1, records.size());
+            assertEquals("/data/a", records.get(0).getPath());
+        }
+    }
+
+    @Test
+    public void ignoresTruncatedLastRecord() throws Exception {
+        File traceFile = new File(testDir, "truncated.trace");
+        long nanos = System.nanoTime();
+        long lengthBeforeLast;
+        try (OperationTrace.Writer writer = new OperationTrace.Writer(traceFile, nanos)) {
+            record(writer, "/data/a", 10);
+            record(writer, "/data/b", 20);
+            writer.flush();
+            lengthBeforeLast = traceFile.length();
+            record(writer, "/data/c", 30);
+        }
+        long fullLength = traceFile.length();
+        assertEquals(3, OperationTrace.read(traceFile).size());
+
+        for (long length = fullLength - 1; length >= lengthBeforeLast; length--) {
+            try (RandomAccessFile file = new RandomAccessFile(traceFile, "rw")) {
+                file.setLength(length);
+            }
+            List<OperationTrace.Record> records = OperationTrace.read(traceFile);
+            assertEquals("truncated to " + length + " bytes", 2, records.size());
+            assertEquals("/data/b", records.get(1).getPath());
+            assertEquals(20, records.get(1).getBytes());
+        }
+    }
+
+    private static void record(OperationTrace.Writer writer, String path, long bytes) throws Exception {
+        writer.record(OperationTrace.Op.READ, path, 0, -1, false, System.nanoTime(), 1000, bytes,
+                OperationTrace.Result.OK);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.BZip2Codec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes files on the local file system in parallel splits and compares the output with
+ * decoding the whole file on one thread.
+ */
+public class ParallelSplitDecoderTest {
+    private static final int THREADS = 4;
+    // Far below the block and container sizes, so most splits start or end inside a block
+    private static final long SPLIT_SIZE = 16 * 1024;
+
+    private File testDir;
+    private Configuration conf;
+    private FileSystem fileSystem;
+
+    @Before
+    public void setUp() throws Exception {
+        testDir = new File("target/test-data/" + getClass().getSimpleName()).getAbsoluteFile();
+        FileUtil.fullyDelete(testDir);
+        testDir.mkdirs();
+        conf = new Configuration();
+        fileSystem = FileSystem.getLocal(conf);
+    }
+
+    @Test
+    public void bzip2MatchesSerialDecoding() throws Exception {
+        BZip2Codec codec = ReflectionUtils.newInstance(BZip2Codec.class, conf);
+        Path path = new Path(testDir.getPath(), "text.bz2");
+        byte[] text = randomText(3 * 1024 * 1024);
+        try (OutputStream out = codec.createOutputStream(fileSystem.create(path))) {
+            out.write(text);
+        }
+
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        try (InputStream in = codec.createInputStream(fileSystem.open(path))) {
+            IOUtils.copyBytes(in, serial, 64 * 1024, false);
+        }
+        assertArrayEquals(text, serial.toByteArray());
+
+        ParallelSplitDecoder decoder = new ParallelSplitDecoder(fileSystem, SPLIT_SIZE);
+        assertTrue(fileSystem.getFileStatus(path).getLen() > 10 * SPLIT_SIZE);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        assertEquals(text.length, decoder.decodeSplittable(path, codec, THREADS, parallel));
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+        assertEquals(text.length, decoder.decodeSplittable(path, codec, THREADS, null));
+    }
+
+    @Test
+    public void blockCompressedSequenceFileMatchesSerialDecoding() throws Exception {
+        // Small compression blocks give many sync markers for the splits to find
+        conf.setInt("io.seqfile.compress.blocksize", 8 * 1024);
+        Path path = new Path(testDir.getPath(), "records.seq");
+        Random random = new Random(7);
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(conf,
+                SequenceFile.Writer.file(fileSystem.makeQualified(path)),
+                SequenceFile.Writer.keyClass(LongWritable.class),
+                SequenceFile.Writer.valueClass(Text.class),
+                SequenceFile.Writer.compression(SequenceFile.CompressionType.BLOCK, new DefaultCodec()))) {
+            for (long i = 0; i < 20000; i++) {
+                writer.append(new LongWritable(i), new Text(new String(randomText(20 + random.nextInt(200)),
+                        StandardCharsets.UTF_8)));
+            }
+        }
+
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        long records = 0;
+        try (SequenceFile.Reader reader = new SequenceFile.Reader(conf, SequenceFile.Reader.file(path))) {
+            LongWritable key = new LongWritable();
+            Text value = new Text();
+            while (reader.next(key, value)) {
+                serial.write((key + "\t" + value + "\n").getBytes(StandardCharsets.UTF_8));
+                records++;
+            }
+        }
+        assertEquals(20000, records);
+
+        ParallelSplitDecoder decoder = new ParallelSplitDecoder(fileSystem, SPLIT_SIZE);
+        assertTrue(decoder.isSequenceFile(path));
+        assertTrue(fileSystem.getFileStatus(path).getLen() > 10 * SPLIT_SIZE);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        assertEquals(serial.size(), decoder.decodeSequenceFile(path, THREADS, parallel));
+        assertArrayEquals(serial.toByteArray(), parallel.toByteArray());
+    }
+
+    private static byte[] randomText(int length) {
+        // Seeded per call so the text compresses like real data but is reproducible
+        Random random = new Random(length);
+        String[] words = {"block", "split", "decode", "namenode", "datanode", "replica", "stream", "sync"};
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            text.append(words[random.nextInt(words.length)]).append(random.nextInt(100000))
+                    .append(random.nextInt(12) == 0 ? '\n' : ' ');
+        }
+        text.setLength(length);
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads through a prefetching stream and closes it while the fetcher is busy.
+ */
+public class PrefetchInputStreamTest {
+
+    @Test
+    public void readsSourceInOrder() throws Exception {
+        byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+        try (PrefetchInputStream in = new PrefetchInputStream(new ByteArrayInputStream(data), 1000, 2, "prefetch-test")) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IOUtils.copyBytes(in, out, 4096, false);
+            assertArrayEquals(data, out.toByteArray());
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void closeReturnsWhenSourceSwallowsInterrupt() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        InputStream source = new InputStream() {
+            private boolean first = true;
+
+            @Override
+            public int read() throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (first) {
+                    first = false;
+                    return len;
+                }
+                // Like a DFS read, report the interrupt as an IOException instead of keeping the flag set
+                blocked.countDown();
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                    return -1;
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("read interrupted");
+                }
+            }
+        };
+
+        // The first chunk fills the queue, so the fetcher has no room left for the end marker
+        PrefetchInputStream in = new PrefetchInputStream(source, 1000, 1, "prefetch-test");
+        assertTrue(blocked.await(10, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        in.close();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("close took " + elapsedMs + " ms", elapsedMs < 5000);
+    }
+}
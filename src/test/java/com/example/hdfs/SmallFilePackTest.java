@@ -0,0 +1,190 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Writes and reads small-file packs on the local file system.
+ */
+public class SmallFilePackTest {
+    private static final long CONTAINER_SIZE = 1024;
+
+    private FileSystem fileSystem;
+    private Path packDir;
+
+    @Before
+    public void setUp() throws Exception {
+        File testDir = new File("target/test-data/" + getClass().getSimpleName()).getAbsoluteFile();
+        FileUtil.fullyDelete(testDir);
+        fileSystem = FileSystem.getLocal(new Configuration());
+        packDir = new Path(testDir.getPath(), "pack");
+    }
+
+    @Test
+    public void roundTripsEntriesOverSeveralContainers() throws Exception {
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            for (int i = 0; i < 30; i++) {
+                writer.add(name(i), payload(i, 100));
+            }
+        }
+
+        List<FileStatus> containers = containers();
+        assertTrue("expected several containers, got " + containers.size(), containers.size() > 1);
+        for (FileStatus container : containers) {
+            assertTrue(container.getPath() + " is " + container.getLen() + " bytes", container.getLen() <= CONTAINER_SIZE);
+        }
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, packDir)) {
+            assertEquals(30, pack.entries().size());
+            for (int i = 0; i < 30; i++) {
+                assertArrayEquals(payload(i, 100), pack.read(name(i)));
+            }
+        }
+    }
+
+    @Test
+    public void newestContainerWinsAndDeletionsHideEntries() throws Exception {
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            writer.add("a", bytes("first a"));
+            writer.add("b", bytes("first b"));
+            writer.add("c", bytes("first c"));
+        }
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            writer.add("a", bytes("second a"));
+            writer.delete("b");
+        }
+
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, packDir)) {
+            assertEquals(Arrays.asList("a", "c"), names(pack));
+            assertArrayEquals(bytes("second a"), pack.read("a"));
+            assertArrayEquals(bytes("first c"), pack.read("c"));
+            assertNull(pack.getEntry("b"));
+            try {
+                pack.read("b");
+                fail("deleted entry was readable");
+            } catch (FileNotFoundException expected) {
+                // Deleted
+            }
+        }
+    }
+
+    @Test
+    public void compactionKeepsOnlyLiveEntries() throws Exception {
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            for (int i = 0; i < 20; i++) {
+                writer.add(name(i), payload(i, 100));
+            }
+        }
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            for (int i = 0; i < 20; i += 2) {
+                writer.delete(name(i));
+            }
+            writer.add(name(1), payload(100, 50));
+        }
+        List<FileStatus> before = containers();
+
+        assertEquals(10, SmallFilePack.compact(fileSystem, packDir, CONTAINER_SIZE));
+
+        List<FileStatus> after = containers();
+        for (FileStatus old : before) {
+            assertTrue(old.getPath() + " survived compaction", !fileSystem.exists(old.getPath()));
+        }
+        assertTrue(after.size() < before.size());
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, packDir)) {
+            assertEquals(10, pack.entries().size());
+            assertArrayEquals(payload(100, 50), pack.read(name(1)));
+            for (int i = 3; i < 20; i += 2) {
+                assertArrayEquals(payload(i, 100), pack.read(name(i)));
+            }
+        }
+    }
+
+    @Test
+    public void oversizedEntryGetsItsOwnContainer() throws Exception {
+        byte[] large = payload(7, (int) CONTAINER_SIZE * 4);
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            writer.add("small-1", bytes("before"));
+            writer.add("large", large);
+            writer.add("small-2", bytes("after"));
+        }
+
+        assertEquals(3, containers().size());
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, packDir)) {
+            assertArrayEquals(large, pack.read("large"));
+            assertArrayEquals(bytes("before"), pack.read("small-1"));
+            assertArrayEquals(bytes("after"), pack.read("small-2"));
+        }
+    }
+
+    @Test
+    public void abortedWriteDoesNotPublishItsContainer() throws Exception {
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            writer.add("a", bytes("kept"));
+        }
+        try (SmallFilePack.Writer writer = new SmallFilePack.Writer(fileSystem, packDir, CONTAINER_SIZE)) {
+            writer.add("a", bytes("partial"));
+            writer.add("b", bytes("partial"));
+            writer.abort();
+        }
+
+        assertEquals(1, containers().size());
+        for (FileStatus status : fileSystem.listStatus(packDir)) {
+            assertTrue("left behind " + status.getPath(), !status.getPath().getName().endsWith(".tmp"));
+        }
+        try (SmallFilePack pack = SmallFilePack.open(fileSystem, packDir)) {
+            assertEquals(Arrays.asList("a"), names(pack));
+            assertArrayEquals(bytes("kept"), pack.read("a"));
+        }
+    }
+
+    private List<FileStatus> containers() throws Exception {
+        List<FileStatus> containers = new ArrayList<>();
+        for (FileStatus status : fileSystem.listStatus(packDir)) {
+            if (status.getPath().getName().matches("pack-\\d+\\.spk")) {
+                containers.add(status);
+            }
+        }
+        return containers;
+    }
+
+    private static List<String> names(SmallFilePack pack) {
+        List<String> names = new ArrayList<>();
+        for (SmallFilePack.Entry entry : pack.entries()) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+
+    private static String name(int i) {
+        return String.format("dir/file-%03d", i);
+    }
+
+    private static byte[] payload(int seed, int length) {
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) (seed * 31 + i);
+        }
+        return payload;
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
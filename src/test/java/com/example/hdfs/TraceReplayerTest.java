@@ -0,0 +1,94 @@
+package com.example.hdfs;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.MiniDFSCluster;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Records operations against one MiniDFSCluster and replays them against an empty one.
+ */
+public class TraceReplayerTest {
+    private File testDir;
+    private MiniDFSCluster recordCluster;
+    private MiniDFSCluster replayCluster;
+
+    @Before
+    public void setUp() throws Exception {
+        testDir = new File("target/test-data/" + getClass().getSimpleName()).getAbsoluteFile();
+        FileUtil.fullyDelete(testDir);
+        testDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        if (recordCluster != null) {
+            recordCluster.shutdown();
+        }
+        if (replayCluster != null) {
+            replayCluster.shutdown();
+        }
+    }
+
+    @Test
+    public void replaysRecordedOperationsOnPreparedCluster() throws Exception {
+        recordCluster = startCluster("record");
+        FileSystem recordFs = recordCluster.getFileSystem();
+        // Exists before recording starts, so only prepare can create it on the replay cluster
+        try (FSDataOutputStream out = recordFs.create(new Path("/data/existing.txt"))) {
+            out.write("existing content".getBytes(StandardCharsets.UTF_8));
+        }
+
+        String uri = recordFs.getUri().toString();
+        File traceFile = new File(testDir, "operations.trace");
+        Configuration clientConf = new Configuration();
+        clientConf.set("hdfs.client.trace.file", traceFile.getPath());
+        try (HdfsClient client = new HdfsClient(uri, clientConf)) {
+            client.createDirectory(uri + "/data/new");
+            client.writeFile(uri + "/data/new/written.txt", "written content", true);
+            client.readFile(uri + "/data/new/written.txt");
+            client.readFile(uri + "/data/existing.txt");
+            client.listFiles(uri + "/data");
+            client.exists(uri + "/data/existing.txt");
+            // Only replay creates these, so each read and delete depends on its write going first
+            for (int i = 0; i < 20; i++) {
+                String path = uri + "/data/new/file-" + i;
+                client.writeFile(path, "content " + i, false);
+                client.readFile(path);
+                client.delete(path, false);
+            }
+        }
+
+        List<OperationTrace.Record> records = OperationTrace.read(traceFile);
+        assertEquals(66, records.size());
+        for (OperationTrace.Record record : records) {
+            assertEquals(record.getPath(), OperationTrace.Result.OK, record.getResult());
+        }
+
+        replayCluster = startCluster("replay");
+        TraceReplayer replayer = new TraceReplayer(replayCluster.getFileSystem());
+        replayer.prepare(records);
+        OperationTrace.Result[] results = replayer.replay(records, 4, 0);
+
+        assertEquals(records.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            assertEquals(records.get(i).getOp() + " " + records.get(i).getPath(), OperationTrace.Result.OK, results[i]);
+        }
+    }
+
+    private MiniDFSCluster startCluster(String name) throws Exception {
+        Configuration conf = new Configuration();
+        return new MiniDFSCluster.Builder(conf, new File(testDir, name)).numDataNodes(1).build();
+    }
+}